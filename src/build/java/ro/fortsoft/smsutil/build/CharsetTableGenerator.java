@@ -0,0 +1,326 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.build;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generates the charset tables of ro.fortsoft.smsutil.charset from the mapping files in <i>src/main/charset</i>,
+ * run by the build in the generate-sources phase:
+ * <ul>
+ *     <li>GSM0338Tables from GSM0338.TXT</li>
+ *     <li>NationalLanguageTables from the national/NN_LANGUAGE.TXT files, NN being the national language
+ *     identifier</li>
+ * </ul>
+ * The mapping files have the format of the Unicode GSM0338.TXT: a code (0xXX, or 0x1BXX after the escape
+ * character) and a Unicode character (0xXXXX) per line, comments following a '#'.
+ *
+ * The tables are written as String constants, which the compiler inlines into the classes using them and which
+ * these turn into char arrays with a single copy. The lookup of the national tables holding a character is left
+ * to NationalLanguage, it being much larger than the tables it is computed from.
+ * A generated file is only written when its content changes, not to make the compiler rebuild everything.
+ */
+public class CharsetTableGenerator {
+
+    private static final String PACKAGE = "ro.fortsoft.smsutil.charset";
+
+    private static final int TABLE_SIZE = 128;
+
+    /**
+     * Character types of GSM0338Charset
+     */
+    private static final int BASE_CHARACTER = 1;
+
+    private static final int EXTENDED_CHARACTER = 2;
+
+    private static final String NATIONAL_FILE_SUFFIX = ".TXT";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: CharsetTableGenerator <mapping files dir> <output dir>");
+        }
+        File mappingDir = new File(args[0]);
+        File packageDir = new File(args[1], PACKAGE.replace('.', File.separatorChar));
+        if (!packageDir.isDirectory() && !packageDir.mkdirs()) {
+            throw new IOException("Cannot create " + packageDir);
+        }
+
+        Mapping gsm0338 = Mapping.read(new File(mappingDir, "GSM0338.TXT"));
+        write(new File(packageDir, "GSM0338Tables.java"), generateGsm0338Tables(gsm0338));
+
+        File[] nationalFiles = new File(mappingDir, "national").listFiles();
+        if (nationalFiles == null) {
+            throw new IOException("No national language mapping files in " + mappingDir);
+        }
+        Arrays.sort(nationalFiles);
+        write(new File(packageDir, "NationalLanguageTables.java"), generateNationalLanguageTables(nationalFiles));
+    }
+
+    private static String generateGsm0338Tables(Mapping mapping) {
+        char[] latin1Entries = new char[256];
+        Map<Character, Character> nonLatin1Entries = new TreeMap<Character, Character>();
+
+        // extended first, so that a character in both tables gets its base code
+        for (int code = TABLE_SIZE - 1; code >= 0; code--) {
+            addEntry(latin1Entries, nonLatin1Entries, mapping.singleShift[code], EXTENDED_CHARACTER << 7 | code);
+        }
+        for (int code = TABLE_SIZE - 1; code >= 0; code--) {
+            addEntry(latin1Entries, nonLatin1Entries, mapping.lockingShift[code], BASE_CHARACTER << 7 | code);
+        }
+
+        char[] nonLatin1Characters = new char[nonLatin1Entries.size()];
+        char[] nonLatin1EntryValues = new char[nonLatin1Entries.size()];
+        int i = 0;
+        for (Map.Entry<Character, Character> entry : nonLatin1Entries.entrySet()) {
+            nonLatin1Characters[i] = entry.getKey();
+            nonLatin1EntryValues[i++] = entry.getValue();
+        }
+
+        JavaSource source = new JavaSource("GSM0338Tables", "GSM0338.TXT");
+        source.constant("Base table characters indexed by their code", "BASE_CHARACTERS", mapping.lockingShift);
+        source.constant("Extension table characters indexed by the code following the escape character, "
+                + "0 where there's none", "EXTENDED_CHARACTERS", mapping.singleShift);
+        source.constant("Entries of the Latin-1 characters indexed by the character, holding the character type "
+                + "above the lower 7 bits and the code in the lower 7 bits, 0 for the characters outside the charset",
+                "LATIN1_ENTRIES", latin1Entries);
+        source.constant("Sorted characters of the charset above the Latin-1 range", "NON_LATIN1_CHARACTERS",
+                nonLatin1Characters);
+        source.constant("Entries of the {@link #NON_LATIN1_CHARACTERS} at the same index", "NON_LATIN1_ENTRIES",
+                nonLatin1EntryValues);
+        return source.end();
+    }
+
+    private static void addEntry(char[] latin1Entries, Map<Character, Character> nonLatin1Entries, char ch,
+                                 int entry) {
+        if (ch == 0) {
+            return;
+        }
+        if (ch < latin1Entries.length) {
+            latin1Entries[ch] = (char) entry;
+        } else {
+            nonLatin1Entries.put(ch, (char) entry);
+        }
+    }
+
+    private static String generateNationalLanguageTables(File[] nationalFiles) throws IOException {
+        JavaSource source = new JavaSource("NationalLanguageTables", "national/*.TXT");
+
+        for (File file : nationalFiles) {
+            String fileName = file.getName();
+            int separator = fileName.indexOf('_');
+            if (separator < 0 || !fileName.endsWith(NATIONAL_FILE_SUFFIX)) {
+                throw new IllegalArgumentException("National language mapping file " + fileName
+                        + " is not named NN_LANGUAGE.TXT");
+            }
+            int identifier = Integer.parseInt(fileName.substring(0, separator));
+            if (identifier < 1 || identifier > 15) {
+                throw new IllegalArgumentException("National language identifier of " + fileName
+                        + " must be between 1 and 15");
+            }
+            String language = fileName.substring(separator + 1, fileName.length() - NATIONAL_FILE_SUFFIX.length());
+
+            Mapping mapping = Mapping.read(file);
+            if (mapping.hasLockingShift) {
+                source.constant(language + " locking shift table, 0 where there's no character",
+                        language + "_LOCKING_SHIFT", mapping.lockingShift);
+            }
+            source.constant(language + " single shift table, 0 where there's no character",
+                    language + "_SINGLE_SHIFT", mapping.singleShift);
+        }
+        return source.end();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        byte[] bytes = content.getBytes("UTF-8");
+        if (file.isFile() && Arrays.equals(bytes, readFully(file))) {
+            return;
+        }
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * The two tables of a mapping file, '\u0000' where a code has no character
+     */
+    private static class Mapping {
+
+        final char[] lockingShift = new char[TABLE_SIZE];
+
+        final char[] singleShift = new char[TABLE_SIZE];
+
+        boolean hasLockingShift;
+
+        static Mapping read(File file) throws IOException {
+            Mapping mapping = new Mapping();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    int comment = line.indexOf('#');
+                    String mappingLine = (comment < 0 ? line : line.substring(0, comment)).trim();
+                    if (mappingLine.length() > 0) {
+                        mapping.add(mappingLine.split("\\s+"), file.getName() + ":" + lineNumber);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            return mapping;
+        }
+
+        private void add(String[] columns, String location) {
+            if (columns.length != 2) {
+                throw new IllegalArgumentException(location + ": expected a code and a Unicode character");
+            }
+            int code = parseHex(columns[0], location);
+            int ch = parseHex(columns[1], location);
+            if (ch <= 0 || ch > Character.MAX_VALUE) {
+                throw new IllegalArgumentException(location + ": character outside the Basic Multilingual Plane");
+            }
+
+            char[] table = lockingShift;
+            if (code >= 0x1B00) {
+                table = singleShift;
+                code -= 0x1B00;
+            } else {
+                hasLockingShift = true;
+            }
+            if (code < 0 || code >= TABLE_SIZE) {
+                throw new IllegalArgumentException(location + ": code " + columns[0] + " is not 7 bit");
+            }
+            if (table[code] != 0) {
+                throw new IllegalArgumentException(location + ": code " + columns[0] + " is mapped twice");
+            }
+            table[code] = (char) ch;
+        }
+
+        private static int parseHex(String value, String location) {
+            if (!value.startsWith("0x")) {
+                throw new IllegalArgumentException(location + ": " + value + " is not a 0x hex number");
+            }
+            return Integer.parseInt(value.substring(2), 16);
+        }
+    }
+
+    /**
+     * Source of a class holding String constants
+     */
+    private static class JavaSource {
+
+        private static final int CHARS_PER_LINE = 16;
+
+        private static final int COMMENT_LINE_LENGTH = 100;
+
+        private final StringBuilder source = new StringBuilder();
+
+        JavaSource(String className, String mappingFiles) {
+            source.append("package ").append(PACKAGE).append(";\n\n");
+            comment("", "Generated at build time by " + CharsetTableGenerator.class.getName()
+                    + " from src/main/charset/" + mappingFiles + ", not to be edited");
+            source.append("final class ").append(className).append(" {\n")
+                    .append("\n    private ").append(className).append("() {\n    }\n");
+        }
+
+        void constant(String comment, String name, char[] value) {
+            source.append('\n');
+            comment("    ", comment);
+            source.append("    static final String ").append(name).append(" =");
+            if (value.length == 0) {
+                source.append(" \"\";\n");
+                return;
+            }
+
+            for (int i = 0; i < value.length; i += CHARS_PER_LINE) {
+                source.append(i == 0 ? "\n            \"" : " +\n            \"");
+                for (int j = i; j < Math.min(value.length, i + CHARS_PER_LINE); j++) {
+                    appendEscaped(value[j]);
+                }
+                source.append('"');
+            }
+            source.append(";\n");
+        }
+
+        private void comment(String indent, String comment) {
+            source.append(indent).append("/**\n");
+            int lineStart = 0;
+            while (lineStart < comment.length()) {
+                int lineEnd = comment.length();
+                if (lineEnd - lineStart > COMMENT_LINE_LENGTH) {
+                    lineEnd = comment.lastIndexOf(' ', lineStart + COMMENT_LINE_LENGTH);
+                }
+                source.append(indent).append(" * ").append(comment, lineStart, lineEnd).append('\n');
+                lineStart = lineEnd + 1;
+            }
+            source.append(indent).append(" */\n");
+        }
+
+        String end() {
+            return source.append("}\n").toString();
+        }
+
+        /**
+         * Escapes all but the printable ASCII characters. Line feed, carriage return, quote and backslash can't
+         * be \\u escaped, since these escapes are replaced before the source is parsed.
+         */
+        private void appendEscaped(char ch) {
+            if (ch == '\n') {
+                source.append("\\n");
+            } else if (ch == '\r') {
+                source.append("\\r");
+            } else if (ch == '"' || ch == '\\') {
+                source.append('\\').append(ch);
+            } else if (ch >= 0x20 && ch < 0x7F) {
+                source.append(ch);
+            } else {
+                source.append(String.format("\\u%04X", (int) ch));
+            }
+        }
+    }
+}
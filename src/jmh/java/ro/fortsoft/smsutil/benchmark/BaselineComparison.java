@@ -0,0 +1,103 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prints the JMH results next to the saved baseline, both in the CSV result format (-rf csv): the throughput
+ * and the bytes allocated per operation reported by the GC profiler
+ */
+public class BaselineComparison {
+
+    private static final String ALLOCATION_SUFFIX = ":gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BaselineComparison <baseline.csv> <result.csv>");
+            System.exit(1);
+        }
+
+        File baselineFile = new File(args[0]);
+        if (! baselineFile.exists()) {
+            System.out.println("No baseline at " + baselineFile + ", copy " + args[1] + " there to save one");
+            return;
+        }
+
+        Map<String, Double> baseline = readScores(baselineFile);
+        Map<String, Double> result = readScores(new File(args[1]));
+
+        System.out.println(String.format("%-95s %14s %14s %8s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, Double> score : result.entrySet()) {
+            Double baselineScore = baseline.get(score.getKey());
+            System.out.println(String.format("%-95s %14s %14.2f %8s", score.getKey(),
+                    baselineScore == null ? "-" : String.format("%.2f", baselineScore), score.getValue(),
+                    getChange(score.getKey(), baselineScore, score.getValue())));
+        }
+    }
+
+    /**
+     * Relative change for the throughput, bytes for the allocations which are often close to 0
+     */
+    private static String getChange(String key, Double baselineScore, double score) {
+        if (baselineScore == null || Double.isNaN(baselineScore) || Double.isNaN(score)) {
+            return "";
+        }
+        if (key.endsWith("(B/op)")) {
+            return String.format("%+.1f B", score - baselineScore);
+        }
+        return baselineScore == 0 ? "" : String.format("%+.1f%%", (score - baselineScore) * 100 / baselineScore);
+    }
+
+    /**
+     * @return the scores by benchmark name and parameters, for the throughput and the allocation rows
+     */
+    private static Map<String, Double> readScores(File file) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<String, Double>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String[] header = split(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = split(line);
+                String benchmark = columns[0];
+                if (benchmark.indexOf(':') >= 0 && ! benchmark.endsWith(ALLOCATION_SUFFIX)) {
+                    continue;
+                }
+
+                StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.',
+                        benchmark.indexOf(':') >= 0 ? benchmark.indexOf(':') : benchmark.length()) + 1));
+                key.replace(0, 0, getSimpleClassName(benchmark) + ".");
+                for (int i = 7; i < columns.length && i < header.length; i++) {
+                    if (columns[i].length() > 0) {
+                        key.append(' ').append(columns[i]);
+                    }
+                }
+                key.append(" (").append(columns[6]).append(')');
+
+                scores.put(key.toString(), Double.valueOf(columns[4]));
+            }
+        } finally {
+            reader.close();
+        }
+        return scores;
+    }
+
+    private static String getSimpleClassName(String benchmark) {
+        int methodStart = benchmark.lastIndexOf('.', benchmark.indexOf(':') >= 0 ? benchmark.indexOf(':')
+                : benchmark.length());
+        return benchmark.substring(benchmark.lastIndexOf('.', methodStart - 1) + 1, methodStart);
+    }
+
+    private static String[] split(String line) {
+        String[] columns = line.split(",", -1);
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = columns[i].replace("\"", "");
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,80 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis of long mostly ASCII messages, with the Java 9 block scan of the multi-release jar and, in a JVM where
+ * the multi-release jars are read as plain jars, with the Java 6 one char at a time scan.
+ * Both only differ when run on JDK 9 or later.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BasicCharsetScanBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String JAVA_6_CLASSES = "-Djdk.util.jar.enableMultiRelease=false";
+
+    @Param({"LONG_ASCII", "MULTIPART_GSM"})
+    public SmsCorpus corpus;
+
+    private final SmsAnalysis analysis = new SmsAnalysis();
+
+    private String[] messages;
+
+    private byte[][] utf8Messages;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        messages = corpus.generate();
+        utf8Messages = new byte[messages.length][];
+        for (int i = 0; i < messages.length; i++) {
+            utf8Messages[i] = messages[i].getBytes(UTF_8);
+        }
+    }
+
+    @Benchmark
+    public SmsAnalysis analyze() {
+        return SmsUtils.analyze(messages[index++ & (SmsCorpus.SIZE - 1)], analysis);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = JAVA_6_CLASSES)
+    public SmsAnalysis analyzeJava6() {
+        return SmsUtils.analyze(messages[index++ & (SmsCorpus.SIZE - 1)], analysis);
+    }
+
+    @Benchmark
+    public SmsAnalysis analyzeBytes() {
+        byte[] message = utf8Messages[index++ & (SmsCorpus.SIZE - 1)];
+        return SmsUtils.analyze(message, 0, message.length, analysis);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = JAVA_6_CLASSES)
+    public SmsAnalysis analyzeBytesJava6() {
+        byte[] message = utf8Messages[index++ & (SmsCorpus.SIZE - 1)];
+        return SmsUtils.analyze(message, 0, message.length, analysis);
+    }
+}
@@ -0,0 +1,30 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GSM0338CharsetBenchmark {
+
+    @Benchmark
+    public boolean containsOnlyCharsetCharacters(Messages messages) {
+        return GSM0338Charset.containsOnlyCharsetCharacters(messages.next(), true);
+    }
+
+    @Benchmark
+    public boolean containsOnlyBaseCharsetCharacters(Messages messages) {
+        return GSM0338Charset.containsOnlyCharsetCharacters(messages.next(), false);
+    }
+}
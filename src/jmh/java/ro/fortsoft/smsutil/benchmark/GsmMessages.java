@@ -0,0 +1,29 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Same as {@link Messages} for the corpora with only GSM0338Charset characters
+ */
+@State(Scope.Thread)
+public class GsmMessages {
+
+    @Param({"OTP", "MULTIPART_GSM", "EXTENDED_HEAVY", "ESCAPE_BOUNDARY"})
+    public SmsCorpus corpus;
+
+    private String[] messages;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        messages = corpus.generate();
+    }
+
+    public String next() {
+        return messages[index++ & (SmsCorpus.SIZE - 1)];
+    }
+}
@@ -0,0 +1,46 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.Charset;
+
+/**
+ * Messages of a corpus, handed out in a cycle so that each operation works on the next one
+ */
+@State(Scope.Thread)
+public class Messages {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"OTP", "MULTIPART_GSM", "EXTENDED_HEAVY", "UNICODE", "ESCAPE_BOUNDARY"})
+    public SmsCorpus corpus;
+
+    private String[] messages;
+
+    private byte[][] utf8Messages;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        messages = corpus.generate();
+        utf8Messages = new byte[messages.length][];
+        for (int i = 0; i < messages.length; i++) {
+            utf8Messages[i] = messages[i].getBytes(UTF_8);
+        }
+    }
+
+    public String next() {
+        return messages[index++ & (SmsCorpus.SIZE - 1)];
+    }
+
+    /**
+     * @return the next message encoded as UTF-8
+     */
+    public byte[] nextUtf8() {
+        return utf8Messages[index++ & (SmsCorpus.SIZE - 1)];
+    }
+}
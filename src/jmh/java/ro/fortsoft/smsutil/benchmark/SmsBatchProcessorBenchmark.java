@@ -0,0 +1,84 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.SmsBatchProcessor;
+import ro.fortsoft.smsutil.domain.BatchResult;
+import ro.fortsoft.smsutil.domain.Parts;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting and splitting a batch of {@link #BATCH_SIZE} mixed messages with {@link SmsBatchProcessor} on
+ * executors of 1 to 8 threads, to check that the speed-up scales with the cores of the machine.
+ * Compare the scores of the same benchmark over the parallelism values, more threads than cores giving no gain.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmsBatchProcessorBenchmark {
+
+    public static final int BATCH_SIZE = 64 * SmsCorpus.SIZE;
+
+    private static final SmsCorpus[] CORPORA = {
+            SmsCorpus.OTP, SmsCorpus.MULTIPART_GSM, SmsCorpus.LONG_ASCII, SmsCorpus.EXTENDED_HEAVY, SmsCorpus.UNICODE
+    };
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private String[] messages;
+
+    private ExecutorService executor;
+
+    private SmsBatchProcessor processor;
+
+    @Setup
+    public void setUp() {
+        String[][] corpora = new String[CORPORA.length][];
+        for (int i = 0; i < CORPORA.length; i++) {
+            corpora[i] = CORPORA[i].generate();
+        }
+
+        messages = new String[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            // copied so that the batch holds distinct strings, as it would when read from a file or a queue
+            messages[i] = new String(corpora[i % CORPORA.length][i / CORPORA.length & (SmsCorpus.SIZE - 1)]);
+        }
+
+        executor = Executors.newFixedThreadPool(parallelism);
+        processor = new SmsBatchProcessor(executor, parallelism);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public BatchResult<Parts> countParts() {
+        return processor.countParts(messages);
+    }
+
+    @Benchmark
+    public BatchResult<SmsParts> splitSms() {
+        return processor.splitSms(messages);
+    }
+}
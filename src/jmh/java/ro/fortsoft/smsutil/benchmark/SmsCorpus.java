@@ -0,0 +1,129 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generated message corpora, the same for every run since the generators are seeded
+ */
+public enum SmsCorpus {
+
+    /**
+     * One time passwords and similar short notifications, single part GSM
+     */
+    OTP {
+        @Override
+        String generate(Random random) {
+            String[] templates = {
+                    "Your verification code is %s. Do not share it with anyone.",
+                    "%s is your login code",
+                    "Use %s to confirm your payment of 25.00 EUR at Shop Online. Valid for 5 minutes."
+            };
+            String code = String.valueOf(100000 + random.nextInt(900000));
+            return String.format(templates[random.nextInt(templates.length)], code);
+        }
+    },
+
+    /**
+     * GSM texts taking 2 to 5 parts
+     */
+    MULTIPART_GSM {
+        @Override
+        String generate(Random random) {
+            return words(random, 161 + random.nextInt(4 * 153), WORDS);
+        }
+    },
+
+    /**
+     * Long plain ASCII texts of 4 to 10 parts, newsletters and reports
+     */
+    LONG_ASCII {
+        @Override
+        String generate(Random random) {
+            return words(random, 600 + random.nextInt(900), ASCII_WORDS);
+        }
+    },
+
+    /**
+     * GSM texts with many extended charset characters, which take 2 septets each
+     */
+    EXTENDED_HEAVY {
+        @Override
+        String generate(Random random) {
+            return words(random, 60 + random.nextInt(500), EXTENDED_WORDS);
+        }
+    },
+
+    /**
+     * Unicode texts with emojis (surrogate pairs) and non GSM letters
+     */
+    UNICODE {
+        @Override
+        String generate(Random random) {
+            return words(random, 30 + random.nextInt(250), UNICODE_WORDS);
+        }
+    },
+
+    /**
+     * GSM texts where an extended charset character falls on the part boundaries, so its escape would be
+     * the last septet of a part
+     */
+    ESCAPE_BOUNDARY {
+        @Override
+        String generate(Random random) {
+            int parts = 2 + random.nextInt(3);
+            StringBuilder message = new StringBuilder();
+            for (int i = 0; i < parts; i++) {
+                message.append(words(random, 152, WORDS).substring(0, 152)).append(i % 2 == 0 ? '€' : '{');
+            }
+            return message.toString();
+        }
+    };
+
+    /**
+     * Number of messages in a corpus, a power of 2 so that benchmarks can cycle through them with a mask
+     */
+    public static final int SIZE = 1024;
+
+    private static final String[] WORDS = {
+            "the", "delivery", "of", "your", "order", "is", "scheduled", "for", "tomorrow", "between", "10:00",
+            "and", "14:00.", "Reply", "STOP", "to", "unsubscribe,", "call", "+40712345678", "for", "details!",
+            "Café", "Müller", "Åsa", "ñandú", "@home", "£20", "50%", "off"
+    };
+
+    private static final String[] ASCII_WORDS = {
+            "the", "delivery", "of", "your", "order", "is", "scheduled", "for", "tomorrow", "between", "10:00",
+            "and", "14:00.", "Reply", "STOP", "to", "unsubscribe,", "call", "+40712345678", "for", "details!",
+            "Weekly", "report:", "25", "new", "offers", "in", "your", "area,", "see", "www.example.com", "(1/3)"
+    };
+
+    private static final String[] EXTENDED_WORDS = {
+            "{json}", "[1]", "~approx", "pipe|separated", "€10", "^caret", "back\\slash", "text", "with", "[{}]",
+            "price:", "€", "and"
+    };
+
+    private static final String[] UNICODE_WORDS = {
+            "Привет", "мир", "țară", "șosea", "😀", "👍🏽", "ok", "日本語", "café", "🎉", "Ζήτω", "the", "and"
+    };
+
+    abstract String generate(Random random);
+
+    public String[] generate() {
+        Random random = new Random(ordinal() + 1);
+        String[] messages = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            messages[i] = generate(random);
+        }
+        return messages;
+    }
+
+    private static String words(Random random, int length, String[] words) {
+        StringBuilder message = new StringBuilder(length + 16);
+        while (message.length() < length) {
+            if (message.length() > 0) {
+                message.append(' ');
+            }
+            message.append(words[random.nextInt(words.length)]);
+        }
+        return message.toString();
+    }
+}
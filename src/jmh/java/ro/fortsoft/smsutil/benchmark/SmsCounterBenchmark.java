@@ -0,0 +1,57 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.SmsCounter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A keystroke typed and deleted again in a {@link SmsCounter}, with the number of parts asked after each edit,
+ * at the end of the message and at its start, where every later part boundary is followed again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SmsCounterBenchmark {
+
+    @Param({"1000", "100000"})
+    public int length;
+
+    private SmsCounter counter;
+
+    @Setup
+    public void setUp() {
+        String[] messages = SmsCorpus.LONG_ASCII.generate();
+        StringBuilder message = new StringBuilder(length + 1500);
+        for (int i = 0; message.length() < length; i++) {
+            message.append(messages[i & (SmsCorpus.SIZE - 1)]).append(' ');
+        }
+        message.setLength(length);
+        counter = new SmsCounter(message);
+    }
+
+    @Benchmark
+    public int editAtTheEnd() {
+        int parts = counter.append('{').getNumberOfParts();
+        return parts + counter.deleteCharAt(counter.length() - 1).getNumberOfParts();
+    }
+
+    @Benchmark
+    public int editAtTheStart() {
+        int parts = counter.insert(0, "{").getNumberOfParts();
+        return parts + counter.deleteCharAt(0).getNumberOfParts();
+    }
+}
@@ -0,0 +1,43 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.SmsPartsCache;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting the same messages over and over, with and without the cache, from several threads sharing it.
+ * The cache holds all the messages of a corpus, so after the warm up every call is a hit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SmsPartsCacheBenchmark {
+
+    private final SmsPartsCache cache = new SmsPartsCache(64L << 20, 2000);
+
+    @Benchmark
+    public SmsParts splitSms(Messages messages) {
+        return SmsUtils.splitSms(messages.next());
+    }
+
+    @Benchmark
+    public SmsParts splitSmsCached(Messages messages) {
+        return cache.splitSms(messages.next());
+    }
+}
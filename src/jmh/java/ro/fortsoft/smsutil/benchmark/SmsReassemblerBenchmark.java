@@ -0,0 +1,80 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.SmsReassembler;
+import ro.fortsoft.smsutil.SmsReassemblyHandler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parts of 3 part messages added out of order by 4 threads to a shared {@link SmsReassembler}, each thread
+ * with an originator of its own, while one incomplete message stays pending. The score is in parts,
+ * the number of threads can be changed with -t.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SmsReassemblerBenchmark {
+
+    private static final String[] PARTS = {
+            "Your parcel 4711 is on its way and will be delivered tomorrow between 10:00 and 14:00. ",
+            "If nobody is at home the courier will leave it at the pick-up point on Main Street. ",
+            "Reply STOP to stop the notifications."
+    };
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    private SmsReassembler reassembler;
+
+    @Setup
+    public void setUp() {
+        reassembler = new SmsReassembler(new SmsReassemblyHandler() {
+            @Override
+            public void onMessage(String originator, int reference, CharSequence message) {
+            }
+
+            @Override
+            public void onExpired(String originator, int reference, CharSequence[] parts) {
+            }
+        }, 1, TimeUnit.HOURS, 10000);
+        reassembler.addPart("40799999999", 0, 2, 1, PARTS[0]);
+    }
+
+    @State(Scope.Thread)
+    public static class Originator {
+
+        private String originator;
+
+        private int reference;
+
+        @Setup
+        public void setUp(SmsReassemblerBenchmark benchmark) {
+            originator = "4070000000" + benchmark.threads.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public boolean addParts(Originator originator) {
+        int reference = originator.reference++ & 0xFFFF;
+        reassembler.addPart(originator.originator, reference, 3, 2, PARTS[1]);
+        reassembler.addPart(originator.originator, reference, 3, 3, PARTS[2]);
+        return reassembler.addPart(originator.originator, reference, 3, 1, PARTS[0]);
+    }
+}
@@ -0,0 +1,172 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import ro.fortsoft.smsutil.SmsSplitProcessor;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.domain.SmsPart;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splitting a whole corpus through {@link SmsSplitProcessor}, with a subscriber requesting the parts in batches,
+ * compared with the blocking loop calling {@link SmsUtils#splitSms(String)} for each message.
+ * The score is in messages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmsSplitProcessorBenchmark {
+
+    private static final int PART_BATCH = 256;
+
+    @Param({"OTP", "MULTIPART_GSM", "UNICODE"})
+    public SmsCorpus corpus;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private String[] messages;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        messages = corpus.generate();
+    }
+
+    @Setup(Level.Trial)
+    public void startExecutor() {
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopExecutor() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SmsCorpus.SIZE)
+    public int blockingLoop() {
+        int parts = 0;
+        for (String message : messages) {
+            parts += SmsUtils.splitSms(message).getParts().length;
+        }
+        return parts;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SmsCorpus.SIZE)
+    public int processor() throws InterruptedException {
+        SmsSplitProcessor processor = new SmsSplitProcessor(executor, 64);
+        CountingSubscriber subscriber = new CountingSubscriber();
+        new ArrayPublisher(messages).subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.completed.await();
+        return subscriber.parts;
+    }
+
+    private static class CountingSubscriber implements Subscriber<SmsPart> {
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private Subscription subscription;
+
+        private int parts;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(PART_BATCH);
+        }
+
+        @Override
+        public void onNext(SmsPart part) {
+            if (++parts % PART_BATCH == 0) {
+                subscription.request(PART_BATCH);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    /**
+     * Emits the messages as they are requested, in the thread calling request
+     */
+    private static class ArrayPublisher implements Publisher<CharSequence> {
+
+        private final String[] messages;
+
+        private ArrayPublisher(String[] messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super CharSequence> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+
+                private final AtomicLong requested = new AtomicLong();
+
+                private final AtomicInteger wip = new AtomicInteger();
+
+                private volatile boolean cancelled;
+
+                private int index;
+
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    if (wip.getAndIncrement() != 0) {
+                        return;
+                    }
+                    do {
+                        while (requested.get() > 0 && index < messages.length && !cancelled) {
+                            requested.decrementAndGet();
+                            subscriber.onNext(messages[index++]);
+                        }
+                        if (index == messages.length && !cancelled) {
+                            index++;
+                            subscriber.onComplete();
+                        }
+                    } while (wip.decrementAndGet() != 0);
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.Encoding;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.domain.Parts;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmsUtilsBenchmark {
+
+    @Benchmark
+    public Encoding getGsmEncoding(Messages messages) {
+        return SmsUtils.getGsmEncoding(messages.next());
+    }
+
+    @Benchmark
+    public Parts getNumberOfParts(Messages messages) {
+        return SmsUtils.getNumberOfParts(messages.next());
+    }
+
+    @Benchmark
+    public SmsParts splitSms(Messages messages) {
+        return SmsUtils.splitSms(messages.next());
+    }
+
+    @Benchmark
+    public String escapeAny7BitExtendedCharsetInContent(GsmMessages messages) {
+        return SmsUtils.escapeAny7BitExtendedCharsetInContent(messages.next());
+    }
+}
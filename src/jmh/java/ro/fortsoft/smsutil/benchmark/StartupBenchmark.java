@@ -0,0 +1,36 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.domain.Parts;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to the first {@link SmsUtils#getNumberOfParts(String)} call of a fresh JVM, class loading and
+ * initialisation of the charset tables included, as seen by a short-lived worker.
+ * Each fork measures a single call, the score being averaged over the forks.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(30)
+public class StartupBenchmark {
+
+    @Benchmark
+    public Parts firstGsmMessage() {
+        return SmsUtils.getNumberOfParts("Your code is 4711. Price 5€ {valid 10 min}");
+    }
+
+    @Benchmark
+    public Parts firstUnicodeMessage() {
+        return SmsUtils.getNumberOfParts("Ваш код 4711, действителен 10 минут");
+    }
+}
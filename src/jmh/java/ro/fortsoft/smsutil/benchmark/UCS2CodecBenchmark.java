@@ -0,0 +1,76 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.Encoding;
+import ro.fortsoft.smsutil.SmsPartHandler;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.charset.UCS2Codec;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting emoji dense Unicode messages and encoding each part into a direct buffer, with {@link UCS2Codec}
+ * writing the part ranges of the message and with the String parts of splitSms encoded by getBytes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UCS2CodecBenchmark implements SmsPartHandler {
+
+    @Param({"UNICODE"})
+    public SmsCorpus corpus;
+
+    private final SmsAnalysis analysis = new SmsAnalysis();
+
+    private final ByteBuffer out = ByteBuffer.allocateDirect(4096);
+
+    private String[] messages;
+
+    private String message;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        messages = corpus.generate();
+    }
+
+    @Benchmark
+    public int encodeParts() {
+        out.clear();
+        message = messages[index++ & (SmsCorpus.SIZE - 1)];
+        SmsUtils.splitSms(message, analysis, this);
+        return out.position();
+    }
+
+    @Benchmark
+    public int encodeSplitSmsGetBytes() throws UnsupportedEncodingException {
+        out.clear();
+        String[] parts = SmsUtils.splitSms(messages[index++ & (SmsCorpus.SIZE - 1)]).getParts();
+        for (String part : parts) {
+            out.put(part.getBytes("UTF-16BE"));
+        }
+        return out.position();
+    }
+
+    @Override
+    public void onPart(Encoding encoding, int partIndex, int numberOfParts, int start, int end) {
+        UCS2Codec.encode(message, start, end, out);
+    }
+}
@@ -0,0 +1,55 @@
+package ro.fortsoft.smsutil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.fortsoft.smsutil.Encoding;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UTF-8 encoded messages handled straight from their bytes, compared with decoding them into a String first
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Utf8Benchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final SmsAnalysis analysis = new SmsAnalysis();
+
+    @Benchmark
+    public Encoding getGsmEncodingFromBytes(Messages messages) {
+        byte[] message = messages.nextUtf8();
+        return SmsUtils.getGsmEncoding(message, 0, message.length);
+    }
+
+    @Benchmark
+    public Encoding getGsmEncodingFromDecodedString(Messages messages) {
+        return SmsUtils.getGsmEncoding(new String(messages.nextUtf8(), UTF_8));
+    }
+
+    @Benchmark
+    public SmsAnalysis analyzeBytes(Messages messages) {
+        byte[] message = messages.nextUtf8();
+        return SmsUtils.analyze(message, 0, message.length, analysis);
+    }
+
+    @Benchmark
+    public SmsAnalysis analyzeDecodedString(Messages messages) {
+        return SmsUtils.analyze(new String(messages.nextUtf8(), UTF_8), analysis);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Finds the runs of plain ASCII characters that take a single septet of the GSM0338Charset base charset: the space,
+ * the digits, the letters and the punctuation from '!' to '@', the characters most messages are made of.
+ * The analyzers skip over these runs without looking the characters up one by one.
+ * The charset check of a String, GSM0338Charset.containsOnlyCharsetCharacters and so SmsUtils.getGsmEncoding(String),
+ * doesn't go through the scanner: its single table lookup per char is faster than the blocks built with charAt.
+ *
+ * This is the version for Java 6, checking one character at a time. The multi-release jar carries a Java 9 version
+ * in <i>META-INF/versions/9</i> which checks whole blocks of 8 bytes or 4 chars at once.
+ */
+final class BasicCharsetScanner {
+
+    private BasicCharsetScanner() {
+    }
+
+    /**
+     * @return number of characters from the start index, up to the end index, that are plain ASCII single septets
+     */
+    static int getBasicLength(CharSequence content, int start, int end) {
+        int i = start;
+        while (i < end && isBasic(content.charAt(i))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    /**
+     * @return number of bytes from the start index, up to the end index, that are plain ASCII single septets
+     */
+    static int getBasicLength(byte[] array, int start, int end) {
+        int i = start;
+        while (i < end && isBasic(array[i])) {
+            i++;
+        }
+        return i - start;
+    }
+
+    /**
+     * @return number of bytes from the absolute start index, up to the end index, that are plain ASCII
+     * single septets
+     */
+    static int getBasicLength(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        while (i < end && isBasic(buffer.get(i))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    static boolean isBasic(int ch) {
+        return ch >= ' ' && ch <= 'Z' || ch >= 'a' && ch <= 'z';
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.charset.GSM7BitCodec;
+import ro.fortsoft.smsutil.charset.UCS2Codec;
+import ro.fortsoft.smsutil.domain.EncodedPart;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes messages into parts ready to be sent, each part of a multipart message starting with a User Data Header
+ * holding the concatenation information element, with a reference number taken from the
+ * {@link ConcatenationReferenceAllocator}.
+ *
+ * With the 16 bit references the header is one byte longer, so the message is split at 152 septets or
+ * 66 UTF-16 chars instead of 153 or 67. A message that fits in a single part is sent without a header.
+ */
+public class ConcatenatedSmsBuilder {
+
+    private static final int MAX_USER_DATA_BYTES = 140;
+
+    private final ConcatenationReferenceAllocator referenceAllocator;
+
+    private final ReferenceSize referenceSize;
+
+    public ConcatenatedSmsBuilder(ConcatenationReferenceAllocator referenceAllocator, ReferenceSize referenceSize) {
+        this.referenceAllocator = referenceAllocator;
+        this.referenceSize = referenceSize;
+    }
+
+    /**
+     * @param destination destination of the message, the reference numbers are allocated per destination
+     * @param message message
+     * @return the encoded parts, in order
+     * @throws IllegalArgumentException when the message holds the escape character, see {@link GSM7BitCodec}
+     */
+    public EncodedPart[] build(String destination, CharSequence message) {
+        SmsAnalysis analysis = SmsAnalyzer.analyze(message, new SmsAnalysis());
+        Encoding encoding = analysis.getEncoding();
+
+        if (analysis.getNumberOfParts() == 1) {
+            return new EncodedPart[] {encode(message, 0, message.length(), encoding, -1, 1, 1)};
+        }
+
+        int[] boundaries = SmsSplitter.getPartBoundaries(message, encoding,
+                referenceSize.getMaxLengthMultiPart(encoding));
+        int numberOfParts = boundaries.length - 1;
+        if (numberOfParts > SmsReassembler.MAX_PARTS) {
+            throw new IllegalArgumentException("Message takes " + numberOfParts + " parts, more than "
+                    + SmsReassembler.MAX_PARTS);
+        }
+
+        int reference = referenceAllocator.nextReference(destination, referenceSize);
+        EncodedPart[] parts = new EncodedPart[numberOfParts];
+        for (int i = 0; i < numberOfParts; i++) {
+            parts[i] = encode(message, boundaries[i], boundaries[i + 1], encoding, reference, i + 1, numberOfParts);
+        }
+        return parts;
+    }
+
+    /**
+     * Encodes a message already split by {@link SmsUtils#splitSms(String)}. The parts are joined back and split
+     * again, since with the 16 bit references they hold more than fits next to the header.
+     *
+     * @param destination destination of the message, the reference numbers are allocated per destination
+     * @param smsParts parts of the message
+     * @return the encoded parts, in order
+     */
+    public EncodedPart[] build(String destination, SmsParts smsParts) {
+        StringBuilder message = new StringBuilder();
+        for (String part : smsParts.getParts()) {
+            if (smsParts.getEncoding() == Encoding.GSM_7BIT) {
+                appendUnescaped(part, message);
+            } else {
+                message.append(part);
+            }
+        }
+        return build(destination, message);
+    }
+
+    private EncodedPart encode(CharSequence message, int start, int end, Encoding encoding,
+                               int reference, int partNumber, int numberOfParts) {
+        ByteBuffer userData = ByteBuffer.allocate(MAX_USER_DATA_BYTES);
+
+        int userDataHeaderLength = 0;
+        if (numberOfParts > 1) {
+            userDataHeaderLength = referenceSize.getUserDataHeaderLength();
+            userData.put((byte) (userDataHeaderLength - 1));
+            userData.put((byte) referenceSize.getInformationElementIdentifier());
+            userData.put((byte) (userDataHeaderLength - 3));
+            if (referenceSize == ReferenceSize.SIXTEEN_BIT) {
+                userData.put((byte) (reference >>> 8));
+            }
+            userData.put((byte) reference);
+            userData.put((byte) numberOfParts);
+            userData.put((byte) partNumber);
+        }
+
+        int userDataLength;
+        if (encoding == Encoding.GSM_7BIT) {
+            int fillBits = GSM7BitCodec.getFillBits(userDataHeaderLength);
+            int septets = GSM7BitCodec.encode(message, start, end, fillBits, userData);
+            userDataLength = (userDataHeaderLength * 8 + fillBits) / 7 + septets;
+        } else {
+            userDataLength = userDataHeaderLength + UCS2Codec.encode(message, start, end, userData);
+        }
+
+        return new EncodedPart(encoding, reference, partNumber, numberOfParts, userDataHeaderLength, userDataLength,
+                Arrays.copyOf(userData.array(), userData.position()));
+    }
+
+    /**
+     * Drops the escape characters added before the extended charset characters
+     */
+    private static void appendUnescaped(String part, StringBuilder message) {
+        for (int i = 0; i < part.length(); i++) {
+            char ch = part.charAt(i);
+            if (ch == GSM0338Charset.ESCAPE_CHAR && i + 1 < part.length()
+                    && GSM0338Charset.isExtendedCharsetCharacter(part.charAt(i + 1))) {
+                continue;
+            }
+            message.append(ch);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Hands out concatenation reference numbers per destination without a shared lock.
+ *
+ * The destinations are spread over striped atomic counters, each destination always using the same stripe, so that
+ * consecutive messages to a destination get consecutive references, skipping only those taken by the destinations
+ * sharing its stripe. The stripes are padded apart so that threads incrementing different stripes don't
+ * contend for the same cache line. The counters start at random values, so references are not reused right after
+ * a restart.
+ */
+public class ConcatenationReferenceAllocator {
+
+    public static final int DEFAULT_STRIPES = 64;
+
+    /**
+     * Ints between two stripes, a cache line of 64 bytes
+     */
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray counters;
+
+    private final int mask;
+
+    public ConcatenationReferenceAllocator() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes number of counters, a power of 2
+     */
+    public ConcatenationReferenceAllocator(int stripes) {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Number of stripes must be a power of 2, got " + stripes);
+        }
+
+        this.mask = stripes - 1;
+        this.counters = new AtomicIntegerArray(stripes * PADDING);
+        Random random = new Random();
+        for (int i = 0; i < stripes; i++) {
+            counters.set(i * PADDING, random.nextInt());
+        }
+    }
+
+    /**
+     * @param destination destination of the message
+     * @param referenceSize size of the reference number
+     * @return the next reference number for the destination
+     */
+    public int nextReference(String destination, ReferenceSize referenceSize) {
+        int hash = destination.hashCode();
+        hash ^= hash >>> 16;
+        return counters.incrementAndGet((hash & mask) * PADDING) & referenceSize.getMaxReference();
+    }
+}
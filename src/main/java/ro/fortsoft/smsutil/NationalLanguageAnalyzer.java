@@ -0,0 +1,170 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.charset.NationalLanguage;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.util.Set;
+
+/**
+ * Picks the combination of national language locking and single shift tables with which a message takes the fewest
+ * parts, in a single pass over the message.
+ *
+ * Every combination of a locking shift table (or the default alphabet) with a single shift table (or the default
+ * extended table) is followed at the same time, the tables a character belongs to being looked up once in the
+ * membership bitmaps of {@link NationalLanguage}. A combination drops out at the first character outside both of its
+ * tables. Each table other than the default one is announced by a 3 byte information element in the User Data Header,
+ * so the combinations don't have the same capacity per part.
+ */
+final class NationalLanguageAnalyzer {
+
+    private static final int MAX_USER_DATA_BYTES = 140;
+
+    /**
+     * User Data Header length byte and the 5 bytes of the concatenated message information element
+     */
+    private static final int CONCATENATION_HEADER_BYTES = 6;
+
+    private static final int SHIFT_INFORMATION_ELEMENT_BYTES = 3;
+
+    private NationalLanguageAnalyzer() {
+    }
+
+    static SmsAnalysis analyze(CharSequence content, Set<NationalLanguage> languages, SmsAnalysis result) {
+        int lockingShiftCount = 1;
+        int singleShiftCount = 1;
+        NationalLanguage[] lockingShiftTables = new NationalLanguage[NationalLanguage.values().length];
+        NationalLanguage[] singleShiftTables = new NationalLanguage[NationalLanguage.values().length];
+        lockingShiftTables[0] = NationalLanguage.DEFAULT;
+        singleShiftTables[0] = NationalLanguage.DEFAULT;
+        for (NationalLanguage language : languages) {
+            if (language == NationalLanguage.DEFAULT) {
+                continue;
+            }
+            if (language.hasLockingShiftTable()) {
+                lockingShiftTables[lockingShiftCount++] = language;
+            }
+            singleShiftTables[singleShiftCount++] = language;
+        }
+
+        int combinations = lockingShiftCount * singleShiftCount;
+        int[] lockingShiftBits = new int[combinations];
+        int[] singleShiftBits = new int[combinations];
+        int[] maxLengthMultiPart = new int[combinations];
+        int[] septets = new int[combinations];
+        int[] parts = new int[combinations];
+        int[] partSeptets = new int[combinations];
+        boolean[] alive = new boolean[combinations];
+
+        for (int i = 0; i < combinations; i++) {
+            NationalLanguage lockingShiftTable = lockingShiftTables[i / singleShiftCount];
+            NationalLanguage singleShiftTable = singleShiftTables[i % singleShiftCount];
+            lockingShiftBits[i] = 1 << lockingShiftTable.ordinal();
+            singleShiftBits[i] = 1 << singleShiftTable.ordinal();
+            maxLengthMultiPart[i] = getMaxLength(CONCATENATION_HEADER_BYTES
+                    + SHIFT_INFORMATION_ELEMENT_BYTES * getInformationElements(i, singleShiftCount));
+            parts[i] = 1;
+            alive[i] = true;
+        }
+
+        int length = content.length();
+        int aliveCount = combinations;
+        for (int index = 0; index < length; index++) {
+            char ch = content.charAt(index);
+            int lockingShiftMembership = NationalLanguage.getLockingShiftMembership(ch);
+            int singleShiftMembership = NationalLanguage.getSingleShiftMembership(ch);
+
+            for (int i = 0; i < combinations; i++) {
+                if (!alive[i]) {
+                    continue;
+                }
+
+                int width;
+                if ((lockingShiftMembership & lockingShiftBits[i]) != 0) {
+                    width = 1;
+                } else if ((singleShiftMembership & singleShiftBits[i]) != 0) {
+                    width = 2;
+                } else {
+                    alive[i] = false;
+                    aliveCount--;
+                    continue;
+                }
+
+                if (partSeptets[i] + width > SmsAnalyzer.getMaxPartEnd(ch, maxLengthMultiPart[i])) {
+                    parts[i]++;
+                    partSeptets[i] = width;
+                } else {
+                    partSeptets[i] += width;
+                }
+                septets[i] += width;
+            }
+
+            if (aliveCount == 0) {
+                result.setEncoding(Encoding.GSM_UNICODE);
+                result.setLength(length);
+                result.setNumberOfParts(SmsAnalyzer.getNumberOfPartsForUnicodeEncoding(content, index));
+                result.setOverflow(false);
+                result.setShiftTables(NationalLanguage.DEFAULT, NationalLanguage.DEFAULT);
+                return result;
+            }
+        }
+
+        int best = -1;
+        for (int i = 0; i < combinations; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+
+            int informationElements = getInformationElements(i, singleShiftCount);
+            int maxLengthSinglePart = informationElements == 0 ? Encoding.GSM_7BIT.getMaxLengthSinglePart()
+                    : getMaxLength(1 + SHIFT_INFORMATION_ELEMENT_BYTES * informationElements);
+            if (septets[i] <= maxLengthSinglePart) {
+                parts[i] = 1;
+            }
+
+            if (best < 0 || parts[i] < parts[best] || parts[i] == parts[best]
+                    && (informationElements < getInformationElements(best, singleShiftCount)
+                    || informationElements == getInformationElements(best, singleShiftCount)
+                    && septets[i] < septets[best])) {
+                best = i;
+            }
+        }
+
+        result.setEncoding(Encoding.GSM_7BIT);
+        result.setLength(septets[best]);
+        result.setNumberOfParts(parts[best]);
+        result.setOverflow(false);
+        result.setShiftTables(lockingShiftTables[best / singleShiftCount], singleShiftTables[best % singleShiftCount]);
+        return result;
+    }
+
+    /**
+     * @return the number of shift information elements the combination needs in the User Data Header
+     */
+    private static int getInformationElements(int combination, int singleShiftCount) {
+        return (combination / singleShiftCount == 0 ? 0 : 1) + (combination % singleShiftCount == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return the septets which fit in the user data next to a User Data Header of the given length,
+     * the septets starting on a septet boundary after the header
+     */
+    private static int getMaxLength(int userDataHeaderBytes) {
+        return (MAX_USER_DATA_BYTES - userDataHeaderBytes) * 8 / 7;
+    }
+}
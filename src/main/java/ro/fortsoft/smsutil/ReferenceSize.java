@@ -0,0 +1,76 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+/**
+ * Size of the reference number in the concatenation information element of the User Data Header.
+ * The 16 bit reference takes one more byte of the header, leaving less room for the message in each part.
+ */
+public enum ReferenceSize {
+
+    /**
+     * Concatenated short messages, 8 bit reference number information element
+     */
+    EIGHT_BIT(0x00, 6, 0xFF, 153, 67),
+
+    /**
+     * Concatenated short messages, 16 bit reference number information element
+     */
+    SIXTEEN_BIT(0x08, 7, 0xFFFF, 152, 66);
+
+    private final int informationElementIdentifier;
+
+    /**
+     * Length of the User Data Header holding only the concatenation information element, including its length byte
+     */
+    private final int userDataHeaderLength;
+
+    private final int maxReference;
+
+    private final int maxSeptetsMultiPart;
+
+    private final int maxUnicodeLengthMultiPart;
+
+    ReferenceSize(int informationElementIdentifier, int userDataHeaderLength, int maxReference,
+                  int maxSeptetsMultiPart, int maxUnicodeLengthMultiPart) {
+        this.informationElementIdentifier = informationElementIdentifier;
+        this.userDataHeaderLength = userDataHeaderLength;
+        this.maxReference = maxReference;
+        this.maxSeptetsMultiPart = maxSeptetsMultiPart;
+        this.maxUnicodeLengthMultiPart = maxUnicodeLengthMultiPart;
+    }
+
+    public int getInformationElementIdentifier() {
+        return informationElementIdentifier;
+    }
+
+    public int getUserDataHeaderLength() {
+        return userDataHeaderLength;
+    }
+
+    public int getMaxReference() {
+        return maxReference;
+    }
+
+    /**
+     * @return septets for {@link Encoding#GSM_7BIT}, UTF-16 chars for {@link Encoding#GSM_UNICODE}, which fit
+     * in a part next to the header
+     */
+    public int getMaxLengthMultiPart(Encoding encoding) {
+        return encoding == Encoding.GSM_7BIT ? maxSeptetsMultiPart : maxUnicodeLengthMultiPart;
+    }
+}
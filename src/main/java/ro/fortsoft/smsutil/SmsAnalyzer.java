@@ -0,0 +1,253 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.charset.NationalLanguage;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+/**
+ * Determines the encoding, the encoded length and the number of parts of a message in a single forward pass,
+ * without building the escaped content.
+ *
+ * While the characters are in the GSM0338Charset the split into multipart sms parts is simulated as we go,
+ * applying the same rule as {@link SmsSplitter}: a part cannot end with the escape character, so an extended charset
+ * character which would only have room for its escape moves entirely into the next part.
+ * From the first character outside the charset on, the message is Unicode encoded and only the surrogate pairs
+ * still need to be looked at, since a pair cannot be split across two parts.
+ */
+final class SmsAnalyzer {
+
+    private SmsAnalyzer() {
+    }
+
+    static SmsAnalysis analyze(CharSequence content, SmsAnalysis result) {
+        return analyze(content, Integer.MAX_VALUE, result);
+    }
+
+    /**
+     * Stops as soon as the message is known to take more than the given number of parts. Since a part holds
+     * fewer Unicode chars than septets, a message that doesn't fit while its characters are in the charset
+     * would not fit with the Unicode encoding either.
+     */
+    static SmsAnalysis analyze(CharSequence content, int maxParts, SmsAnalysis result) {
+        int length = content.length();
+
+        int maxLengthMultiPart = Encoding.GSM_7BIT.getMaxLengthMultiPart();
+        // a single part is bounded by its septets, more parts by the part starts
+        int maxSeptets = maxParts == 1 ? Encoding.GSM_7BIT.getMaxLengthSinglePart() : Integer.MAX_VALUE;
+        int maxMultiParts = maxParts == 1 ? Integer.MAX_VALUE : maxParts;
+        int septets = 0;
+        int parts = 1;
+        int partSeptets = 0;
+
+        for (int i = 0; i < length; i++) {
+            // a run of single septets, never more than still fits, so that an overflow is found at the same character
+            long room = Math.min((long) maxSeptets - septets,
+                    ((long) maxMultiParts - parts + 1) * maxLengthMultiPart - partSeptets);
+            int run = BasicCharsetScanner.getBasicLength(content, i, (int) Math.min(length, i + room));
+            if (run > 0) {
+                septets += run;
+                partSeptets += run;
+                if (partSeptets > maxLengthMultiPart) {
+                    int fullParts = (partSeptets - 1) / maxLengthMultiPart;
+                    parts += fullParts;
+                    partSeptets -= fullParts * maxLengthMultiPart;
+                }
+
+                i += run;
+                if (i == length) {
+                    break;
+                }
+            }
+
+            char ch = content.charAt(i);
+            int charType = GSM0338Charset.getCharacterType(ch);
+
+            if (charType == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+                int unicodeParts = getNumberOfPartsForUnicodeEncoding(content, i, maxParts);
+                return unicodeParts > maxParts ? overflow(result, Encoding.GSM_UNICODE, length, maxParts)
+                        : fill(result, Encoding.GSM_UNICODE, length, unicodeParts);
+            }
+
+            int width = charType == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+            if (partSeptets + width > getMaxPartEnd(ch, maxLengthMultiPart)) {
+                parts++;
+                partSeptets = width;
+            } else {
+                partSeptets += width;
+            }
+            septets += width;
+
+            if (septets > maxSeptets || parts > maxMultiParts) {
+                return overflow(result, Encoding.GSM_7BIT, septets, maxParts);
+            }
+        }
+
+        if (septets <= Encoding.GSM_7BIT.getMaxLengthSinglePart()) {
+            parts = 1;
+        }
+
+        return fill(result, Encoding.GSM_7BIT, septets, parts);
+    }
+
+    /**
+     * Length of the longest start of the message that fits in the given number of parts, looking at no more of
+     * the message than the parts can hold. The start is cut before the first character outside the charset
+     * when that character would make it take more parts as Unicode than it can hold.
+     */
+    static int getTruncatedLength(CharSequence content, int maxParts) {
+        int length = content.length();
+
+        int maxLengthMultiPart = Encoding.GSM_7BIT.getMaxLengthMultiPart();
+        int maxSeptets = maxParts == 1 ? Encoding.GSM_7BIT.getMaxLengthSinglePart() : Integer.MAX_VALUE;
+        int maxMultiParts = maxParts == 1 ? Integer.MAX_VALUE : maxParts;
+        int septets = 0;
+        int parts = 1;
+        int partSeptets = 0;
+
+        for (int i = 0; i < length; i++) {
+            char ch = content.charAt(i);
+            int charType = GSM0338Charset.getCharacterType(ch);
+
+            if (charType == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+                return Math.max(i, getTruncatedLengthForUnicodeEncoding(content, i, maxParts));
+            }
+
+            int width = charType == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+            if (partSeptets + width > getMaxPartEnd(ch, maxLengthMultiPart)) {
+                parts++;
+                partSeptets = width;
+            } else {
+                partSeptets += width;
+            }
+            septets += width;
+
+            if (septets > maxSeptets || parts > maxMultiParts) {
+                return i;
+            }
+        }
+
+        return length;
+    }
+
+    private static int getTruncatedLengthForUnicodeEncoding(CharSequence content, int firstUnicodeIndex,
+                                                            int maxParts) {
+        int length = content.length();
+        int maxLength = maxParts == 1 ? Encoding.GSM_UNICODE.getMaxLengthSinglePart()
+                : Encoding.GSM_UNICODE.getMaxLengthMultiPart();
+        if (maxParts == 1 && length <= maxLength) {
+            return length;
+        }
+
+        int parts = firstUnicodeIndex == 0 ? 1 : (firstUnicodeIndex - 1) / maxLength + 1;
+        int partLength = firstUnicodeIndex - (parts - 1) * maxLength;
+        if (parts > maxParts) {
+            return maxParts * maxLength;
+        }
+
+        for (int i = firstUnicodeIndex; i < length; i++) {
+            int width = getUnicodeWidth(content, i, length);
+            if (partLength + width > maxLength) {
+                if (++parts > maxParts) {
+                    return i;
+                }
+                partLength = width;
+            } else {
+                partLength += width;
+            }
+            i += width - 1;
+        }
+
+        return length;
+    }
+
+    /**
+     * Position in a multipart sms part up to which the character can extend. A character that is itself
+     * the escape character cannot take the last position in the part.
+     */
+    static int getMaxPartEnd(char ch, int maxLengthMultiPart) {
+        return ch == GSM0338Charset.ESCAPE_CHAR ? maxLengthMultiPart - 1 : maxLengthMultiPart;
+    }
+
+    /**
+     * Number of parts for the Unicode encoding, where a surrogate pair cannot be split across two parts.
+     * The characters before the given index are all in the GSM0338Charset, so they hold no surrogates.
+     */
+    static int getNumberOfPartsForUnicodeEncoding(CharSequence content, int firstUnicodeIndex) {
+        return getNumberOfPartsForUnicodeEncoding(content, firstUnicodeIndex, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the number of parts, or maxParts + 1 as soon as the message takes more than maxParts
+     */
+    static int getNumberOfPartsForUnicodeEncoding(CharSequence content, int firstUnicodeIndex, int maxParts) {
+        int length = content.length();
+        if (length <= Encoding.GSM_UNICODE.getMaxLengthSinglePart()) {
+            return 1;
+        }
+        if (maxParts == 1) {
+            return 2;
+        }
+
+        int maxLengthMultiPart = Encoding.GSM_UNICODE.getMaxLengthMultiPart();
+        int parts = firstUnicodeIndex == 0 ? 1 : (firstUnicodeIndex - 1) / maxLengthMultiPart + 1;
+        int partLength = firstUnicodeIndex - (parts - 1) * maxLengthMultiPart;
+
+        for (int i = firstUnicodeIndex; i < length; i++) {
+            int width = getUnicodeWidth(content, i, length);
+            if (partLength + width > maxLengthMultiPart) {
+                if (++parts > maxParts) {
+                    return parts;
+                }
+                partLength = width;
+            } else {
+                partLength += width;
+            }
+            i += width - 1;
+        }
+
+        return parts;
+    }
+
+    /**
+     * @return 2 for a surrogate pair starting at the index, which must stay in the same part, 1 otherwise
+     */
+    static int getUnicodeWidth(CharSequence content, int index, int length) {
+        if (Character.isHighSurrogate(content.charAt(index)) && index + 1 < length
+                && Character.isLowSurrogate(content.charAt(index + 1))) {
+            return 2;
+        }
+
+        return 1;
+    }
+
+    private static SmsAnalysis fill(SmsAnalysis result, Encoding encoding, int length, int numberOfParts) {
+        result.setEncoding(encoding);
+        result.setLength(length);
+        result.setNumberOfParts(numberOfParts);
+        result.setOverflow(false);
+        result.setShiftTables(NationalLanguage.DEFAULT, NationalLanguage.DEFAULT);
+        return result;
+    }
+
+    private static SmsAnalysis overflow(SmsAnalysis result, Encoding encoding, int length, int maxParts) {
+        fill(result, encoding, length, maxParts + 1);
+        result.setOverflow(true);
+        return result;
+    }
+}
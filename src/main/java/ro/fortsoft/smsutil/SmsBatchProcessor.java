@@ -0,0 +1,188 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.domain.BatchResult;
+import ro.fortsoft.smsutil.domain.BatchStatistics;
+import ro.fortsoft.smsutil.domain.Parts;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits or counts the parts of large batches of messages on several threads.
+ *
+ * The messages are divided into contiguous chunks, each chunk being processed by one task of the executor
+ * and writing its results straight into the output array, so the results are in the order of the input messages.
+ * Each task keeps its own {@link BatchStatistics}, merged once all the tasks are done.
+ * Batches too small to be worth the task overhead are processed in the calling thread.
+ */
+public class SmsBatchProcessor {
+
+    /**
+     * Below this number of messages in a chunk the overhead of a task outweighs the work
+     */
+    static final int MIN_CHUNK_SIZE = 1024;
+
+    /**
+     * Tasks per thread, so that a thread finishing early can pick up the work of slower ones
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final ExecutorService executor;
+
+    private final int parallelism;
+
+    /**
+     * @param executor executes the chunk tasks, it is not shut down by the processor
+     * @param parallelism number of threads of the executor available to the batch
+     */
+    public SmsBatchProcessor(ExecutorService executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Determines the encoding and the number of parts of every message
+     *
+     * @param messages messages
+     * @return Parts for each message, in the order of the messages, and the totals
+     */
+    public BatchResult<Parts> countParts(List<? extends CharSequence> messages) {
+        final CharSequence[] input = messages.toArray(new CharSequence[messages.size()]);
+        final Parts[] output = new Parts[input.length];
+
+        BatchStatistics statistics = process(input.length, new ChunkProcessor() {
+            @Override
+            public void process(int start, int end, BatchStatistics statistics) {
+                SmsAnalysis analysis = new SmsAnalysis();
+                for (int i = start; i < end; i++) {
+                    SmsAnalyzer.analyze(input[i], analysis);
+                    output[i] = analysis.toParts();
+                    statistics.record(analysis.getEncoding(), analysis.getNumberOfParts());
+                }
+            }
+        });
+
+        return new BatchResult<Parts>(Arrays.asList(output), statistics);
+    }
+
+    /**
+     * @see #countParts(List)
+     */
+    public BatchResult<Parts> countParts(CharSequence[] messages) {
+        return countParts(Arrays.asList(messages));
+    }
+
+    /**
+     * Splits every message into parts
+     *
+     * @param messages messages
+     * @return SmsParts for each message, in the order of the messages, and the totals
+     */
+    public BatchResult<SmsParts> splitSms(List<? extends CharSequence> messages) {
+        final CharSequence[] input = messages.toArray(new CharSequence[messages.size()]);
+        final SmsParts[] output = new SmsParts[input.length];
+
+        BatchStatistics statistics = process(input.length, new ChunkProcessor() {
+            @Override
+            public void process(int start, int end, BatchStatistics statistics) {
+                for (int i = start; i < end; i++) {
+                    SmsParts smsParts = SmsSplitter.splitSms(input[i].toString());
+                    output[i] = smsParts;
+                    statistics.record(smsParts.getEncoding(), smsParts.getParts().length);
+                }
+            }
+        });
+
+        return new BatchResult<SmsParts>(Arrays.asList(output), statistics);
+    }
+
+    /**
+     * @see #splitSms(List)
+     */
+    public BatchResult<SmsParts> splitSms(CharSequence[] messages) {
+        return splitSms(Arrays.asList(messages));
+    }
+
+    private BatchStatistics process(int size, final ChunkProcessor chunkProcessor) {
+        int chunkSize = getChunkSize(size, parallelism);
+
+        if (chunkSize >= size) {
+            BatchStatistics statistics = new BatchStatistics();
+            chunkProcessor.process(0, size, statistics);
+            return statistics;
+        }
+
+        List<Callable<BatchStatistics>> tasks = new ArrayList<Callable<BatchStatistics>>();
+        for (int start = 0; start < size; start += chunkSize) {
+            final int chunkStart = start;
+            final int chunkEnd = Math.min(start + chunkSize, size);
+
+            tasks.add(new Callable<BatchStatistics>() {
+                @Override
+                public BatchStatistics call() {
+                    BatchStatistics statistics = new BatchStatistics();
+                    chunkProcessor.process(chunkStart, chunkEnd, statistics);
+                    return statistics;
+                }
+            });
+        }
+
+        BatchStatistics statistics = new BatchStatistics();
+        try {
+            for (Future<BatchStatistics> result : executor.invokeAll(tasks)) {
+                statistics.merge(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing the batch", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+
+        return statistics;
+    }
+
+    static int getChunkSize(int size, int parallelism) {
+        int tasks = parallelism * TASKS_PER_THREAD;
+        return Math.max(MIN_CHUNK_SIZE, (size + tasks - 1) / tasks);
+    }
+
+    private interface ChunkProcessor {
+
+        void process(int start, int end, BatchStatistics statistics);
+
+    }
+}
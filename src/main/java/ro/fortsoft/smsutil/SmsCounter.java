@@ -0,0 +1,274 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.charset.NationalLanguage;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.util.Arrays;
+
+/**
+ * Mutable message that keeps its encoding, length and number of parts up to date as it is edited,
+ * for compose screens and streaming bridges that need the count after every keystroke or chunk.
+ *
+ * The number of characters outside the GSM0338Charset, the septet length and the UTF-16 length are updated
+ * with every edit, in time proportional to the characters added or removed. The part boundaries are kept
+ * for both encodings and only followed again from the part the edit falls in: appending, or deleting at the end,
+ * costs at most the length of a part. An edit in the middle moves every later boundary, so the next query follows
+ * the boundaries from the edited part to the end of the message, in time proportional to the rest of the message.
+ *
+ * The results are the same as for {@link SmsUtils#analyze(CharSequence)} on the current message.
+ * Not thread-safe.
+ */
+public class SmsCounter {
+
+    private final StringBuilder content;
+
+    private int nonGsmCharacters;
+
+    /**
+     * Septets of the characters in the GSM0338Charset, extended charset characters counting as 2
+     */
+    private int septets;
+
+    private final PartTracker gsm7BitParts = new PartTracker(false);
+
+    private final PartTracker unicodeParts = new PartTracker(true);
+
+    public SmsCounter() {
+        content = new StringBuilder();
+    }
+
+    public SmsCounter(CharSequence initialContent) {
+        content = new StringBuilder(initialContent.length());
+        append(initialContent);
+    }
+
+    public SmsCounter append(char ch) {
+        count(ch, 1);
+        content.append(ch);
+        edited(content.length() - 1);
+        return this;
+    }
+
+    public SmsCounter append(CharSequence text) {
+        return insert(content.length(), text);
+    }
+
+    public SmsCounter insert(int index, CharSequence text) {
+        if (index < 0 || index > content.length()) {
+            throw new IllegalArgumentException("Index " + index + " outside the message of length " + content.length());
+        }
+
+        for (int i = 0; i < text.length(); i++) {
+            count(text.charAt(i), 1);
+        }
+        content.insert(index, text);
+        edited(index);
+        return this;
+    }
+
+    /**
+     * Removes the characters between start, inclusive, and end, exclusive
+     */
+    public SmsCounter delete(int start, int end) {
+        if (start < 0 || end > content.length() || start > end) {
+            throw new IllegalArgumentException("Range [" + start + ", " + end
+                    + ") outside the message of length " + content.length());
+        }
+
+        for (int i = start; i < end; i++) {
+            count(content.charAt(i), -1);
+        }
+        content.delete(start, end);
+        edited(start);
+        return this;
+    }
+
+    public SmsCounter deleteCharAt(int index) {
+        return delete(index, index + 1);
+    }
+
+    public SmsCounter clear() {
+        return delete(0, content.length());
+    }
+
+    /**
+     * @return UTF-16 length of the message
+     */
+    public int length() {
+        return content.length();
+    }
+
+    /**
+     * @return septets the message takes in the 7bit encoding, only meaningful when all characters are in the charset
+     */
+    public int getSeptets() {
+        return septets;
+    }
+
+    public int getNumberOfNonGsmCharacters() {
+        return nonGsmCharacters;
+    }
+
+    public Encoding getEncoding() {
+        return nonGsmCharacters == 0 ? Encoding.GSM_7BIT : Encoding.GSM_UNICODE;
+    }
+
+    public int getNumberOfParts() {
+        Encoding encoding = getEncoding();
+        if (getLength(encoding) <= encoding.getMaxLengthSinglePart()) {
+            return 1;
+        }
+        return getPartTracker(encoding).getNumberOfParts();
+    }
+
+    /**
+     * @return septets for the 7bit encoding, UTF-16 chars for Unicode, that still fit in the current part
+     */
+    public int getRemainingInPart() {
+        Encoding encoding = getEncoding();
+        int length = getLength(encoding);
+        if (length <= encoding.getMaxLengthSinglePart()) {
+            return encoding.getMaxLengthSinglePart() - length;
+        }
+        return encoding.getMaxLengthMultiPart() - getPartTracker(encoding).getLastPartLength();
+    }
+
+    public SmsAnalysis analyze(SmsAnalysis result) {
+        Encoding encoding = getEncoding();
+        result.setEncoding(encoding);
+        result.setLength(getLength(encoding));
+        result.setNumberOfParts(getNumberOfParts());
+        result.setOverflow(false);
+        result.setShiftTables(NationalLanguage.DEFAULT, NationalLanguage.DEFAULT);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return content.toString();
+    }
+
+    private int getLength(Encoding encoding) {
+        return encoding == Encoding.GSM_7BIT ? septets : content.length();
+    }
+
+    private PartTracker getPartTracker(Encoding encoding) {
+        return encoding == Encoding.GSM_7BIT ? gsm7BitParts : unicodeParts;
+    }
+
+    private void count(char ch, int sign) {
+        int charType = GSM0338Charset.getCharacterType(ch);
+        if (charType == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+            nonGsmCharacters += sign;
+        } else {
+            septets += sign * (charType == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1);
+        }
+    }
+
+    private void edited(int index) {
+        gsm7BitParts.edited(index);
+        unicodeParts.edited(index);
+    }
+
+    /**
+     * Start indexes of the multipart sms parts for one encoding, followed lazily up to the end of the message
+     */
+    private final class PartTracker {
+
+        private final boolean unicode;
+
+        private final int maxLengthMultiPart;
+
+        private int[] starts = new int[4];
+
+        private int count = 1;
+
+        /**
+         * Index up to which the part starts are known
+         */
+        private int position;
+
+        /**
+         * Length of the last part up to the position
+         */
+        private int partLength;
+
+        PartTracker(boolean unicode) {
+            this.unicode = unicode;
+            this.maxLengthMultiPart = (unicode ? Encoding.GSM_UNICODE : Encoding.GSM_7BIT).getMaxLengthMultiPart();
+        }
+
+        int getNumberOfParts() {
+            follow();
+            return count;
+        }
+
+        int getLastPartLength() {
+            follow();
+            return partLength;
+        }
+
+        void edited(int index) {
+            // a Unicode edit can turn the high surrogate before it into a pair or break the pair
+            int from = unicode && index > 0 && Character.isHighSurrogate(content.charAt(index - 1)) ? index - 1 : index;
+
+            int kept = count;
+            while (kept > 1 && starts[kept - 1] >= from) {
+                kept--;
+            }
+            if (from < position || kept < count) {
+                count = kept;
+                position = starts[kept - 1];
+                partLength = 0;
+            }
+        }
+
+        private void follow() {
+            int length = content.length();
+            while (position < length) {
+                char ch = content.charAt(position);
+                int width;
+                int maxPartEnd;
+                if (unicode) {
+                    width = SmsAnalyzer.getUnicodeWidth(content, position, length);
+                    maxPartEnd = maxLengthMultiPart;
+                } else {
+                    width = GSM0338Charset.getCharacterType(ch) == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+                    maxPartEnd = SmsAnalyzer.getMaxPartEnd(ch, maxLengthMultiPart);
+                }
+
+                if (partLength + width > maxPartEnd) {
+                    addStart(position);
+                    partLength = width;
+                } else {
+                    partLength += width;
+                }
+                position += unicode ? width : 1;
+            }
+        }
+
+        private void addStart(int start) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = start;
+        }
+    }
+}
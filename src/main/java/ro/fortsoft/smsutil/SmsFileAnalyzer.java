@@ -0,0 +1,244 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.domain.BatchStatistics;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Analyses a UTF-8 file of newline delimited messages, like a campaign file, without building a String per message.
+ *
+ * The file is memory-mapped one window at a time and every line is analysed straight from the mapped bytes,
+ * so the memory used does not depend on the size of the file. Lines end with '\n' or "\r\n", a UTF-8 byte order
+ * mark at the start of the file is skipped.
+ *
+ * The file can also be divided into chunks analysed in parallel. A chunk takes the lines starting inside it,
+ * the last one possibly running into the next chunk.
+ */
+public class SmsFileAnalyzer {
+
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    static final int DEFAULT_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    private final int chunkSize;
+
+    private final int windowSize;
+
+    public SmsFileAnalyzer() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param chunkSize size in bytes of the chunks analysed in parallel
+     * @param windowSize size in bytes of the part of the file mapped at once, grows for lines that don't fit
+     */
+    public SmsFileAnalyzer(int chunkSize, int windowSize) {
+        if (chunkSize < 1 || windowSize < 1) {
+            throw new IllegalArgumentException("Chunk and window size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Analyses every line of the file in the calling thread
+     *
+     * @param file UTF-8 file with a message per line
+     * @param handler receives the analysis of each line in order, can be null when only the totals are needed
+     * @return the totals over all the lines
+     */
+    public BatchStatistics analyze(File file, SmsLineHandler handler) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return analyzeChunk(channel, channel.size(), 0, channel.size(), handler);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Analyses the chunks of the file in parallel
+     *
+     * @param file UTF-8 file with a message per line
+     * @param handler receives the analysis of each line, called concurrently from the executor threads,
+     *                with the lines of a chunk in order; can be null when only the totals are needed
+     * @param executor executes the chunk tasks, it is not shut down by the analyzer
+     * @return the totals over all the lines
+     */
+    public BatchStatistics analyze(File file, final SmsLineHandler handler, ExecutorService executor)
+            throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long fileSize = channel.size();
+
+            List<Callable<BatchStatistics>> tasks = new ArrayList<Callable<BatchStatistics>>();
+            for (long start = 0; start < fileSize; start += chunkSize) {
+                final long chunkStart = start;
+                final long chunkEnd = Math.min(start + chunkSize, fileSize);
+
+                tasks.add(new Callable<BatchStatistics>() {
+                    @Override
+                    public BatchStatistics call() throws IOException {
+                        return analyzeChunk(channel, fileSize, chunkStart, chunkEnd, handler);
+                    }
+                });
+            }
+
+            BatchStatistics statistics = new BatchStatistics();
+            for (Future<BatchStatistics> result : executor.invokeAll(tasks)) {
+                statistics.merge(result.get());
+            }
+            return statistics;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while analysing " + file, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private BatchStatistics analyzeChunk(FileChannel channel, long fileSize, long chunkStart, long chunkEnd,
+                                         SmsLineHandler handler) throws IOException {
+        BatchStatistics statistics = new BatchStatistics();
+        SmsAnalysis analysis = new SmsAnalysis();
+        Window window = new Window(channel, fileSize, windowSize);
+
+        long lineStart;
+        if (chunkStart == 0) {
+            lineStart = window.isByteOrderMark(0) ? 3 : 0;
+        } else {
+            // the line starting right at the chunk start belongs to it, otherwise to the previous chunk
+            lineStart = window.findLineEnd(chunkStart - 1) + 1;
+        }
+
+        while (lineStart < chunkEnd) {
+            long lineEnd = window.findLineEnd(lineStart);
+            long contentEnd = lineEnd;
+            if (contentEnd > lineStart && window.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            window.cover(lineStart, contentEnd);
+            Utf8SmsAnalyzer.analyze(window.buffer, (int) (lineStart - window.start), (int) (contentEnd - window.start),
+                    analysis);
+            statistics.record(analysis.getEncoding(), analysis.getNumberOfParts());
+            if (handler != null) {
+                handler.onLine(lineStart, analysis);
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return statistics;
+    }
+
+    /**
+     * The mapped region of the file, moved forward and enlarged as needed
+     */
+    private static class Window {
+
+        private final FileChannel channel;
+
+        private final long fileSize;
+
+        private final int minSize;
+
+        private MappedByteBuffer buffer;
+
+        private long start;
+
+        private long end;
+
+        Window(FileChannel channel, long fileSize, int minSize) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.minSize = minSize;
+        }
+
+        boolean isByteOrderMark(long position) throws IOException {
+            return position + 3 <= fileSize && get(position) == (byte) 0xEF && get(position + 1) == (byte) 0xBB
+                    && get(position + 2) == (byte) 0xBF;
+        }
+
+        byte get(long position) throws IOException {
+            cover(position, position + 1);
+            return buffer.get((int) (position - start));
+        }
+
+        /**
+         * @return position of the '\n' ending the line holding the position, the file size for the last line
+         */
+        long findLineEnd(long position) throws IOException {
+            while (position < fileSize) {
+                cover(position, position + 1);
+                int limit = (int) (end - start);
+                for (int i = (int) (position - start); i < limit; i++) {
+                    if (buffer.get(i) == '\n') {
+                        return start + i;
+                    }
+                }
+                position = end;
+            }
+            return fileSize;
+        }
+
+        /**
+         * Maps the file so that the window holds the range
+         */
+        void cover(long from, long to) throws IOException {
+            if (buffer != null && from >= start && to <= end) {
+                return;
+            }
+
+            long size = Math.min(Math.max(to - from, minSize), fileSize - from);
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Line at offset " + from + " is too long to be mapped");
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, size);
+            start = from;
+            end = from + size;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+/**
+ * Receives the analysis of each line of a file of messages analysed by {@link SmsFileAnalyzer}
+ */
+public interface SmsLineHandler {
+
+    /**
+     * @param offset offset in the file of the first byte of the line
+     * @param analysis analysis of the line, the instance is reused so it is only valid during the call
+     */
+    void onLine(long offset, SmsAnalysis analysis);
+
+}
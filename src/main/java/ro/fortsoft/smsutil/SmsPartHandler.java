@@ -0,0 +1,35 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+/**
+ * Receives the parts of a split message as ranges of the original message, in order.
+ * For {@link Encoding#GSM_7BIT} the range holds the unescaped characters, the escape characters
+ * for the extended charset characters still need to be added when encoding the part.
+ */
+public interface SmsPartHandler {
+
+    /**
+     * @param encoding encoding of the whole message
+     * @param partIndex index of the part, starting from 0
+     * @param numberOfParts total number of parts of the message
+     * @param start index in the message of the first character of the part
+     * @param end index in the message after the last character of the part
+     */
+    void onPart(Encoding encoding, int partIndex, int numberOfParts, int start, int end);
+
+}
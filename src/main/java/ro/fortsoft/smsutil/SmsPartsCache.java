@@ -0,0 +1,304 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.domain.Parts;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded cache in front of {@link SmsUtils#splitSms(String)} and {@link SmsUtils#getNumberOfParts(String)}
+ * for the messages sent over and over with the same text, like alerts, notices and marketing blasts.
+ *
+ * The results are kept in a ConcurrentHashMap keyed by the message and are shared between the callers, so the
+ * {@link SmsParts#getParts()} array returned must not be modified. The memory taken by the messages and their parts
+ * is estimated as UTF-16 strings, and the entries are evicted once it goes over the maximum, with the CLOCK
+ * (second chance) approximation of LRU: a hit only marks its entry as referenced, without taking any lock,
+ * and the eviction goes through the entries in the order they were added, evicting the first one not
+ * referenced since it last passed over it.
+ *
+ * Messages longer than the maximum length are not cached, hashing and keeping them costing more than
+ * splitting them again.
+ */
+public class SmsPartsCache {
+
+    /**
+     * Estimated bytes taken by an entry besides its strings: the entry, the Parts, the SmsParts, the map node
+     * and the queue node
+     */
+    private static final int ENTRY_WEIGHT = 128;
+
+    private final long maxWeight;
+
+    private final int maxMessageLength;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Entries in the order they were added, the next one to look at for the eviction at the head. Entries
+     * replaced or removed from the map are dropped when they reach the head, or by a compaction of the queue
+     * once there are more of them than entries in the map.
+     */
+    private final Queue<Entry> clock = new ConcurrentLinkedQueue<Entry>();
+
+    /**
+     * Entries in the queue no longer in the map, an estimate when the queue is compacted concurrently
+     */
+    private final AtomicInteger staleEntries = new AtomicInteger();
+
+    private final AtomicLong weight = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong bypassed = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxWeight maximum estimated bytes taken by the cached messages and their parts
+     * @param maxMessageLength length above which the messages are not cached
+     */
+    public SmsPartsCache(long maxWeight, int maxMessageLength) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("Maximum weight must be positive, got " + maxWeight);
+        }
+        if (maxMessageLength < 0) {
+            throw new IllegalArgumentException("Maximum message length cannot be negative, got " + maxMessageLength);
+        }
+        this.maxWeight = maxWeight;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    /**
+     * @see SmsUtils#splitSms(String)
+     */
+    public SmsParts splitSms(String message) {
+        if (message.length() > maxMessageLength) {
+            bypassed.incrementAndGet();
+            return SmsUtils.splitSms(message);
+        }
+
+        Entry entry = entries.get(message);
+        if (entry != null && entry.smsParts != null) {
+            hit(entry);
+            return entry.smsParts;
+        }
+
+        misses.incrementAndGet();
+        SmsParts smsParts = SmsUtils.splitSms(message);
+        Parts parts = entry != null ? entry.parts : new Parts(smsParts.getEncoding(), smsParts.getParts().length);
+        add(entry, new Entry(message, parts, smsParts));
+        return smsParts;
+    }
+
+    /**
+     * @see SmsUtils#getNumberOfParts(String)
+     */
+    public Parts getNumberOfParts(String content) {
+        if (content.length() > maxMessageLength) {
+            bypassed.incrementAndGet();
+            return SmsUtils.getNumberOfParts(content);
+        }
+
+        Entry entry = entries.get(content);
+        if (entry != null) {
+            hit(entry);
+            return entry.parts;
+        }
+
+        misses.incrementAndGet();
+        Parts parts = SmsUtils.getNumberOfParts(content);
+        add(null, new Entry(content, parts, null));
+        return parts;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of calls for messages over the maximum length, which were not looked up
+     */
+    public long getBypassed() {
+        return bypassed.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return hits out of the looked up messages, 0 when none was looked up yet
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * @return estimated bytes taken by the cached messages and their parts
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        for (Entry entry : entries.values()) {
+            if (remove(entry)) {
+                staleEntries.incrementAndGet();
+            }
+        }
+        compact();
+    }
+
+    /**
+     * @return number of entries in the eviction queue, the cached ones and the stale ones not dropped yet
+     */
+    int getClockSize() {
+        return clock.size();
+    }
+
+    private void hit(Entry entry) {
+        // written only when it changes, not to invalidate the cache line on every hit
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Adds the entry, or replaces the previous one holding only the number of parts, then evicts entries
+     * while the cache is too big
+     */
+    private void add(Entry previous, Entry entry) {
+        if (entry.weight > maxWeight) {
+            return;
+        }
+
+        boolean added = previous == null ? entries.putIfAbsent(entry.message, entry) == null
+                : entries.replace(entry.message, previous, entry);
+        if (!added) {
+            return;
+        }
+
+        if (previous != null) {
+            weight.addAndGet(-previous.weight);
+            if (staleEntries.incrementAndGet() > entries.size()) {
+                compact();
+            }
+        }
+        weight.addAndGet(entry.weight);
+        clock.offer(entry);
+
+        while (weight.get() > maxWeight) {
+            Entry candidate = clock.poll();
+            if (candidate == null) {
+                break;
+            }
+            if (entries.get(candidate.message) != candidate) {
+                staleEntries.decrementAndGet();
+                continue;
+            }
+
+            if (candidate.referenced) {
+                candidate.referenced = false;
+                clock.offer(candidate);
+            } else if (remove(candidate)) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops the stale entries from the queue
+     */
+    private void compact() {
+        int dropped = 0;
+        for (Iterator<Entry> iterator = clock.iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entries.get(entry.message) != entry) {
+                iterator.remove();
+                dropped++;
+            }
+        }
+        staleEntries.addAndGet(-dropped);
+    }
+
+    private boolean remove(Entry entry) {
+        if (entries.remove(entry.message, entry)) {
+            weight.addAndGet(-entry.weight);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Estimated bytes taken by a String and its char array
+     */
+    private static int getWeight(String value) {
+        return 40 + 2 * value.length();
+    }
+
+    private static class Entry {
+
+        final String message;
+
+        final Parts parts;
+
+        /**
+         * null while only the number of parts was asked for
+         */
+        final SmsParts smsParts;
+
+        final int weight;
+
+        volatile boolean referenced;
+
+        Entry(String message, Parts parts, SmsParts smsParts) {
+            this.message = message;
+            this.parts = parts;
+            this.smsParts = smsParts;
+
+            int entryWeight = ENTRY_WEIGHT + getWeight(message);
+            if (smsParts != null) {
+                entryWeight += 16 + 4 * smsParts.getParts().length;
+                for (String part : smsParts.getParts()) {
+                    entryWeight += getWeight(part);
+                }
+            }
+            this.weight = entryWeight;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Joins the parts of inbound concatenated messages, which can arrive in any order and on any thread.
+ *
+ * Incomplete messages are kept in a ConcurrentHashMap keyed by the originator, the reference number and
+ * the number of parts, each part taking its slot with a compare-and-set, so adding parts takes no lock.
+ * The message is handed to the {@link SmsReassemblyHandler} as soon as its last part arrives. Incomplete
+ * messages are expired once older than the timeout, or oldest first when there are more than the maximum,
+ * which bounds the memory held by parts that never arrive. The expiry happens while parts are added,
+ * {@link #evictExpired()} also expiring the messages when no parts come in.
+ *
+ * The start order is kept in striped linked lists, a message being unlinked from its stripe as soon as it is
+ * completed or expired, so only the incomplete messages are held.
+ *
+ * Each message is either completed or expired, whichever happens first. A part racing with the expiry
+ * of its message starts a new message.
+ */
+public class SmsReassembler {
+
+    /**
+     * Parts of a concatenated message are numbered with a single byte
+     */
+    public static final int MAX_PARTS = 255;
+
+    private final SmsReassemblyHandler handler;
+
+    private final long timeoutNanos;
+
+    private final int maxPendingMessages;
+
+    private final ConcurrentMap<MessageKey, PendingMessage> pendingMessages =
+            new ConcurrentHashMap<MessageKey, PendingMessage>();
+
+    /**
+     * Pending messages in the order they were started, each stripe holding the messages of the keys hashed to it
+     */
+    private final StartOrder[] startOrders;
+
+    private final AtomicLong startSequence = new AtomicLong();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * @param handler receives the completed and the expired messages
+     * @param timeout time after its first part was received after which an incomplete message expires
+     * @param unit unit of the timeout
+     * @param maxPendingMessages maximum number of incomplete messages kept
+     */
+    public SmsReassembler(SmsReassemblyHandler handler, long timeout, TimeUnit unit, int maxPendingMessages) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive, got " + timeout);
+        }
+        if (maxPendingMessages < 1) {
+            throw new IllegalArgumentException("Maximum number of pending messages must be at least 1, got "
+                    + maxPendingMessages);
+        }
+        this.handler = handler;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.maxPendingMessages = maxPendingMessages;
+
+        int stripes = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 64) * 2 - 1);
+        this.startOrders = new StartOrder[stripes];
+        for (int i = 0; i < stripes; i++) {
+            startOrders[i] = new StartOrder();
+        }
+    }
+
+    /**
+     * @param originator originator of the message
+     * @param reference concatenated message reference number
+     * @param numberOfParts number of parts of the message
+     * @param sequence number of the part, starting from 1
+     * @param content content of the part
+     * @return false when the part was already received
+     */
+    public boolean addPart(String originator, int reference, int numberOfParts, int sequence, CharSequence content) {
+        if (numberOfParts < 1 || numberOfParts > MAX_PARTS) {
+            throw new IllegalArgumentException("Number of parts must be between 1 and " + MAX_PARTS
+                    + ", got " + numberOfParts);
+        }
+        if (sequence < 1 || sequence > numberOfParts) {
+            throw new IllegalArgumentException("Part " + sequence + " is outside the " + numberOfParts + " parts");
+        }
+
+        long now = System.nanoTime();
+        evictExpired(now);
+
+        if (numberOfParts == 1) {
+            handler.onMessage(originator, reference, content);
+            return true;
+        }
+
+        MessageKey key = new MessageKey(originator, reference, numberOfParts);
+        while (true) {
+            PendingMessage message = pendingMessages.get(key);
+            if (message == null) {
+                message = start(key, now);
+            }
+
+            if (!message.parts.compareAndSet(sequence - 1, null, content)) {
+                if (message.state.get() == PendingMessage.PENDING) {
+                    return false;
+                }
+                remove(message);
+                continue;
+            }
+
+            if (message.received.incrementAndGet() == numberOfParts) {
+                if (message.state.compareAndSet(PendingMessage.PENDING, PendingMessage.COMPLETED)) {
+                    getStartOrder(key).unlink(message);
+                    remove(message);
+                    handler.onMessage(originator, reference, message.join());
+                    return true;
+                }
+            } else if (message.state.get() == PendingMessage.PENDING) {
+                return true;
+            }
+
+            // the message expired while the part was added
+            remove(message);
+        }
+    }
+
+    /**
+     * Expires the incomplete messages older than the timeout
+     *
+     * @return number of messages expired
+     */
+    public int evictExpired() {
+        return evictExpired(System.nanoTime());
+    }
+
+    /**
+     * @return number of incomplete messages
+     */
+    public int getPendingMessages() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return number of messages held in the start order, which are the incomplete messages
+     */
+    int getStartOrderSize() {
+        int size = 0;
+        for (StartOrder startOrder : startOrders) {
+            size += startOrder.size;
+        }
+        return size;
+    }
+
+    int evictExpired(long now) {
+        int expired = 0;
+        for (StartOrder startOrder : startOrders) {
+            PendingMessage oldest;
+            while ((oldest = startOrder.head) != null && now - oldest.started >= timeoutNanos) {
+                if (startOrder.unlink(oldest) && expire(oldest)) {
+                    expired++;
+                }
+            }
+        }
+        return expired;
+    }
+
+    private PendingMessage start(MessageKey key, long now) {
+        PendingMessage message = new PendingMessage(key, now, startSequence.getAndIncrement());
+        PendingMessage existing = pendingMessages.putIfAbsent(key, message);
+        if (existing != null) {
+            return existing;
+        }
+
+        getStartOrder(key).link(message);
+        if (pendingCount.incrementAndGet() > maxPendingMessages) {
+            evictOldest();
+        }
+        return message;
+    }
+
+    private void evictOldest() {
+        while (pendingCount.get() > maxPendingMessages) {
+            StartOrder oldestStartOrder = null;
+            PendingMessage oldest = null;
+            for (StartOrder startOrder : startOrders) {
+                PendingMessage head = startOrder.head;
+                if (head != null && (oldest == null || head.sequence < oldest.sequence)) {
+                    oldest = head;
+                    oldestStartOrder = startOrder;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (oldestStartOrder.unlink(oldest)) {
+                expire(oldest);
+            }
+        }
+    }
+
+    private boolean expire(PendingMessage message) {
+        if (!message.state.compareAndSet(PendingMessage.PENDING, PendingMessage.EXPIRED)) {
+            return false;
+        }
+
+        remove(message);
+        CharSequence[] parts = new CharSequence[message.parts.length()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = message.parts.getAndSet(i, null);
+        }
+        handler.onExpired(message.key.originator, message.key.reference, parts);
+        return true;
+    }
+
+    /**
+     * Removes the message which is no longer pending from the map, once by whoever changed its state
+     * or found it changed
+     */
+    private void remove(PendingMessage message) {
+        if (pendingMessages.remove(message.key, message)) {
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    private StartOrder getStartOrder(MessageKey key) {
+        return startOrders[(key.hash ^ key.hash >>> 16) & (startOrders.length - 1)];
+    }
+
+    /**
+     * Doubly linked list of pending messages, oldest first, guarded by its own lock.
+     * The head is volatile so that the expiry can look at it without taking the lock.
+     */
+    private static final class StartOrder {
+
+        private volatile PendingMessage head;
+
+        private PendingMessage tail;
+
+        private volatile int size;
+
+        /**
+         * Links the message unless it was already completed or expired by another thread, whose unlink came first
+         */
+        private synchronized void link(PendingMessage message) {
+            if (message.state.get() != PendingMessage.PENDING) {
+                return;
+            }
+
+            message.previous = tail;
+            if (tail == null) {
+                head = message;
+            } else {
+                tail.next = message;
+            }
+            tail = message;
+            message.linked = true;
+            size++;
+        }
+
+        /**
+         * @return false when the message was already unlinked
+         */
+        private synchronized boolean unlink(PendingMessage message) {
+            if (!message.linked) {
+                return false;
+            }
+
+            if (message.previous == null) {
+                head = message.next;
+            } else {
+                message.previous.next = message.next;
+            }
+            if (message.next == null) {
+                tail = message.previous;
+            } else {
+                message.next.previous = message.previous;
+            }
+            message.previous = null;
+            message.next = null;
+            message.linked = false;
+            size--;
+            return true;
+        }
+    }
+
+    private static final class MessageKey {
+
+        private final String originator;
+
+        private final int reference;
+
+        private final int numberOfParts;
+
+        private final int hash;
+
+        private MessageKey(String originator, int reference, int numberOfParts) {
+            this.originator = originator;
+            this.reference = reference;
+            this.numberOfParts = numberOfParts;
+            this.hash = (originator.hashCode() * 31 + reference) * 31 + numberOfParts;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MessageKey)) {
+                return false;
+            }
+            MessageKey other = (MessageKey) o;
+            return reference == other.reference && numberOfParts == other.numberOfParts
+                    && originator.equals(other.originator);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class PendingMessage {
+
+        private static final int PENDING = 0;
+
+        private static final int COMPLETED = 1;
+
+        private static final int EXPIRED = 2;
+
+        private final MessageKey key;
+
+        private final long started;
+
+        private final AtomicReferenceArray<CharSequence> parts;
+
+        private final AtomicInteger received = new AtomicInteger();
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        /**
+         * Order in which the messages were started, the oldest message having the lowest
+         */
+        private final long sequence;
+
+        /**
+         * Links of the start order, guarded by the lock of the stripe
+         */
+        private PendingMessage previous;
+
+        private PendingMessage next;
+
+        private boolean linked;
+
+        private PendingMessage(MessageKey key, long started, long sequence) {
+            this.key = key;
+            this.started = started;
+            this.sequence = sequence;
+            this.parts = new AtomicReferenceArray<CharSequence>(key.numberOfParts);
+        }
+
+        /**
+         * Copies the parts once into a builder of the exact length, releasing them
+         */
+        private CharSequence join() {
+            int length = 0;
+            for (int i = 0; i < parts.length(); i++) {
+                length += parts.get(i).length();
+            }
+
+            StringBuilder message = new StringBuilder(length);
+            for (int i = 0; i < parts.length(); i++) {
+                message.append(parts.getAndSet(i, null));
+            }
+            return message;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+/**
+ * Receives the messages reassembled by {@link SmsReassembler}, called in the thread that added the last part
+ * or evicted the message
+ */
+public interface SmsReassemblyHandler {
+
+    /**
+     * @param originator originator of the message
+     * @param reference concatenated message reference number
+     * @param message the parts joined in order
+     */
+    void onMessage(String originator, int reference, CharSequence message);
+
+    /**
+     * @param originator originator of the message
+     * @param reference concatenated message reference number
+     * @param parts the parts received, null for the parts that never arrived
+     */
+    void onExpired(String originator, int reference, CharSequence[] parts);
+
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.SmsPart;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive Streams stage splitting the messages it receives into parts, emitted one by one as the subscriber
+ * requests them. On Java 9 and later it can be turned into a {@code java.util.concurrent.Flow.Processor}
+ * with {@code org.reactivestreams.FlowAdapters.toFlowProcessor}.
+ *
+ * The messages are split on the executor, so independent messages are split concurrently, and their parts
+ * are emitted as the messages are done, all the parts of a message in order and before those of the next one.
+ * The messages can therefore come out in a different order than they came in. At most the given number of
+ * messages are requested from upstream ahead of the parts being emitted, a new message being requested
+ * once all the parts of one were emitted, so a message splitting into many parts doesn't flood the subscriber.
+ *
+ * All the signals to the subscriber and the calls to the upstream subscription are made from a single drain loop,
+ * which any thread can enter, so they are serial as the specification requires. Only one subscriber is supported.
+ */
+public class SmsSplitProcessor implements Processor<CharSequence, SmsPart> {
+
+    private final Executor executor;
+
+    private final int maxMessagesInFlight;
+
+    private volatile Subscription upstream;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private volatile Subscriber<? super SmsPart> downstream;
+
+    private final AtomicLong requested = new AtomicLong();
+
+    /**
+     * Messages to be requested from upstream by the drain loop
+     */
+    private final AtomicLong upstreamDemand = new AtomicLong();
+
+    /**
+     * Messages received and not yet fully emitted
+     */
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final Queue<SplitMessage> splitMessages = new ConcurrentLinkedQueue<SplitMessage>();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean done;
+
+    private volatile Throwable error;
+
+    private volatile boolean cancelled;
+
+    // only accessed from the drain loop
+    private SplitMessage current;
+
+    private boolean terminated;
+
+    private boolean upstreamCancelled;
+
+    /**
+     * @param executor splits the messages, for example a pool or a virtual thread per task executor
+     * @param maxMessagesInFlight maximum number of messages requested from upstream and not yet fully emitted
+     */
+    public SmsSplitProcessor(Executor executor, int maxMessagesInFlight) {
+        if (maxMessagesInFlight < 1) {
+            throw new IllegalArgumentException("Maximum number of messages in flight must be at least 1, got "
+                    + maxMessagesInFlight);
+        }
+        this.executor = executor;
+        this.maxMessagesInFlight = maxMessagesInFlight;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super SmsPart> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber is null");
+        }
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("SmsSplitProcessor supports a single subscriber"));
+            return;
+        }
+
+        subscriber.onSubscribe(new PartSubscription());
+        downstream = subscriber;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("Subscription is null");
+        }
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+
+        upstream = subscription;
+        upstreamDemand.addAndGet(maxMessagesInFlight);
+        drain();
+    }
+
+    @Override
+    public void onNext(final CharSequence message) {
+        if (message == null) {
+            throw new NullPointerException("Message is null");
+        }
+
+        outstanding.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    split(message);
+                }
+            });
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (throwable == null) {
+            throw new NullPointerException("Throwable is null");
+        }
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    private void split(CharSequence message) {
+        try {
+            SmsAnalysis analysis = new SmsAnalysis();
+            int[] boundaries = SmsSplitter.getPartBoundaries(message, analysis);
+            splitMessages.add(new SplitMessage(message, analysis.getEncoding(), boundaries));
+            drain();
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        if (error == null) {
+            error = throwable;
+        }
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            Subscription subscription = upstream;
+            if (!terminated) {
+                if (cancelled || error != null) {
+                    cancelUpstream(subscription);
+                    Subscriber<? super SmsPart> subscriber = downstream;
+                    if (cancelled) {
+                        terminate();
+                    } else if (subscriber != null) {
+                        terminate();
+                        subscriber.onError(error);
+                    }
+                } else {
+                    emit(subscription);
+                }
+            } else {
+                splitMessages.clear();
+            }
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit(Subscription subscription) {
+        Subscriber<? super SmsPart> subscriber = downstream;
+        if (subscriber != null) {
+            long demand = requested.get();
+            long emitted = 0;
+            int completedMessages = 0;
+
+            while (emitted != demand) {
+                SplitMessage message = current != null ? current : splitMessages.poll();
+                if (message == null) {
+                    break;
+                }
+                current = message;
+
+                subscriber.onNext(message.nextPart());
+                emitted++;
+                if (message.isFullyEmitted()) {
+                    current = null;
+                    completedMessages++;
+                    outstanding.decrementAndGet();
+                }
+
+                if (cancelled || error != null) {
+                    return;
+                }
+            }
+
+            if (emitted > 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+            upstreamDemand.addAndGet(completedMessages);
+
+            if (done && outstanding.get() == 0) {
+                terminate();
+                subscriber.onComplete();
+                return;
+            }
+        }
+
+        if (subscription != null) {
+            long demand = upstreamDemand.getAndSet(0);
+            if (demand > 0) {
+                subscription.request(demand);
+            }
+        }
+    }
+
+    private void cancelUpstream(Subscription subscription) {
+        if (subscription != null && !upstreamCancelled) {
+            upstreamCancelled = true;
+            subscription.cancel();
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        current = null;
+        splitMessages.clear();
+    }
+
+    private final class PartSubscription implements Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested " + n + " parts, the demand must be positive"));
+                return;
+            }
+
+            long previous;
+            long next;
+            do {
+                previous = requested.get();
+                next = previous + n < 0 ? Long.MAX_VALUE : previous + n;
+            } while (!requested.compareAndSet(previous, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+    }
+
+    private static final class SplitMessage {
+
+        private final CharSequence message;
+
+        private final Encoding encoding;
+
+        private final int[] boundaries;
+
+        private int nextPart;
+
+        private SplitMessage(CharSequence message, Encoding encoding, int[] boundaries) {
+            this.message = message;
+            this.encoding = encoding;
+            this.boundaries = boundaries;
+        }
+
+        private SmsPart nextPart() {
+            int partIndex = nextPart++;
+            return new SmsPart(message, encoding, partIndex, boundaries.length - 1, boundaries[partIndex],
+                    boundaries[partIndex + 1]);
+        }
+
+        private boolean isFullyEmitted() {
+            return nextPart == boundaries.length - 1;
+        }
+    }
+}
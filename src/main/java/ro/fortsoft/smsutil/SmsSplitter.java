@@ -17,85 +17,192 @@
 package ro.fortsoft.smsutil;
 
 import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
 import ro.fortsoft.smsutil.domain.SmsParts;
+import ro.fortsoft.smsutil.metrics.SmsMetrics;
+import ro.fortsoft.smsutil.metrics.SmsMetricsRecorder;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import static ro.fortsoft.smsutil.SmsUtils.escapeAny7BitExtendedCharsetInContent;
-import static ro.fortsoft.smsutil.SmsUtils.getGsmEncoding;
+import java.util.Arrays;
 
 /**
+ * Splits a message into parts reported as (start, end) ranges of the original message.
+ * The escape characters of the extended charset are only counted, the escaped content is never built.
+ *
  * @author sbalamaci
  */
 class SmsSplitter {
 
 
     static SmsParts splitSms(String content) {
-        Encoding encoding = getGsmEncoding(content);
+        SmsAnalysis analysis = new SmsAnalysis();
+        int[] boundaries = getPartBoundaries(content, analysis);
 
-        if (encoding == Encoding.GSM_7BIT) {
-            String escapedContent = escapeAny7BitExtendedCharsetInContent(content);
-            if (escapedContent.length() <= Encoding.GSM_7BIT.getMaxLengthSinglePart()) {
-                return new SmsParts(Encoding.GSM_7BIT, new String[] { escapedContent });
+        String[] parts = new String[analysis.getNumberOfParts()];
+        for (int i = 0; i < parts.length; i++) {
+            if (analysis.getEncoding() == Encoding.GSM_7BIT) {
+                parts[i] = escapeAny7BitExtendedCharset(content, boundaries[i], boundaries[i + 1]);
             } else {
-                return new SmsParts(Encoding.GSM_7BIT, splitGsm7BitEncodedMessage(escapedContent));
+                parts[i] = content.substring(boundaries[i], boundaries[i + 1]);
             }
-        } else {
-            if (content.length() <= Encoding.GSM_UNICODE.getMaxLengthSinglePart()) {
-                return new SmsParts(Encoding.GSM_UNICODE, new String[] {content });
-            } else {
-                return new SmsParts(Encoding.GSM_UNICODE, splitUnicodeEncodedMessage(content));
+        }
+
+        return new SmsParts(analysis.getEncoding(), parts);
+    }
+
+    /**
+     * @return the part boundaries, part i being the range [boundaries[i], boundaries[i + 1]) of the message
+     */
+    static int[] getPartBoundaries(CharSequence content, SmsAnalysis analysis) {
+        SmsAnalyzer.analyze(content, analysis);
+
+        final int[] boundaries = new int[analysis.getNumberOfParts() + 1];
+        split(content, analysis, new SmsPartHandler() {
+            @Override
+            public void onPart(Encoding encoding, int partIndex, int numberOfParts, int start, int end) {
+                boundaries[partIndex + 1] = end;
             }
+        });
+
+        return boundaries;
+    }
+
+    /**
+     * Boundaries of a multipart message split into parts with room for the given septets, or UTF-16 chars for
+     * Unicode, for parts whose User Data Header takes more room than the usual one
+     *
+     * @return the part boundaries, part i being the range [boundaries[i], boundaries[i + 1]) of the message
+     */
+    static int[] getPartBoundaries(CharSequence content, Encoding encoding, int maxLengthMultipart) {
+        BoundaryCollector collector = new BoundaryCollector(content.length() / maxLengthMultipart + 2);
+        splitMultipart(content, encoding, maxLengthMultipart, 0, collector);
+        return collector.getBoundaries();
+    }
+
+    /**
+     * Reports the parts of an already analysed message to the handler
+     */
+    static void split(CharSequence content, SmsAnalysis analysis, SmsPartHandler handler) {
+        Encoding encoding = analysis.getEncoding();
+        int numberOfParts = analysis.getNumberOfParts();
+
+        if (numberOfParts == 1) {
+            handler.onPart(encoding, 0, 1, 0, content.length());
+        } else {
+            splitMultipart(content, encoding, encoding.getMaxLengthMultiPart(), numberOfParts, handler);
         }
     }
 
-    static String[] splitGsm7BitEncodedMessage(String content) {
-        List<String> parts = new ArrayList<String>();
-        StringBuilder contentString = new StringBuilder(content);
+    /**
+     * @param numberOfParts passed on to the handler, 0 when not known yet
+     */
+    private static void splitMultipart(CharSequence content, Encoding encoding, int maxLengthMultipart,
+                                       int numberOfParts, SmsPartHandler handler) {
+        if (encoding == Encoding.GSM_7BIT) {
+            splitGsm7BitEncodedMessage(content, maxLengthMultipart, numberOfParts, handler);
+        } else {
+            splitUnicodeEncodedMessage(content, maxLengthMultipart, numberOfParts, handler);
+        }
+    }
+
+    private static void splitGsm7BitEncodedMessage(CharSequence content, int maxLengthMultipart, int numberOfParts,
+                                                   SmsPartHandler handler) {
+        int length = content.length();
+
+        int partIndex = 0;
+        int partStart = 0;
+        int partSeptets = 0;
+        int escapeAdjustments = 0;
 
-        int maxLengthMultipart = Encoding.GSM_7BIT.getMaxLengthMultiPart();
+        for (int i = 0; i < length; i++) {
+            char ch = content.charAt(i);
+            int width = GSM0338Charset.getCharacterType(ch) == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
 
-        while (contentString.length() > 0) {
-            if (contentString.length() >= (maxLengthMultipart)) {
-                int endPosition = maxLengthMultipart;
-                if(isMultipartSmsLastCharGsm7BitEscapeChar(contentString.toString())) {
-                    endPosition = endPosition - 1;
+            if (partSeptets + width > SmsAnalyzer.getMaxPartEnd(ch, maxLengthMultipart)) {
+                if (partSeptets < maxLengthMultipart) {
+                    escapeAdjustments++;
                 }
-                parts.add(contentString.substring(0, endPosition));
-                contentString.delete(0, endPosition);
+                handler.onPart(Encoding.GSM_7BIT, partIndex++, numberOfParts, partStart, i);
+                partStart = i;
+                partSeptets = width;
             } else {
-                parts.add(contentString.toString());
-                break;
+                partSeptets += width;
             }
         }
 
-        return parts.toArray(new String[parts.size()]);
+        handler.onPart(Encoding.GSM_7BIT, partIndex, numberOfParts, partStart, length);
+        recordEscapeAdjustments(escapeAdjustments);
     }
 
-    private static String[] splitUnicodeEncodedMessage(String content) {
-        List<String> parts = new ArrayList<String>();
+    /**
+     * Reports the parts ended one septet early, so that an escape septet doesn't end the part
+     */
+    static void recordEscapeAdjustments(int escapeAdjustments) {
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        if (recorder != null && escapeAdjustments > 0) {
+            recorder.recordEscapeAdjustments(escapeAdjustments);
+        }
+    }
 
-        StringBuilder contentString = new StringBuilder(content);
+    private static void splitUnicodeEncodedMessage(CharSequence content, int maxLengthMultipart, int numberOfParts,
+                                                   SmsPartHandler handler) {
+        int length = content.length();
 
-        int maxLengthMultipart = Encoding.GSM_UNICODE.getMaxLengthMultiPart();
+        int partIndex = 0;
+        int partStart = 0;
+        int partLength = 0;
 
-        while (contentString.length() > 0) {
-            if (contentString.length() >= (maxLengthMultipart)) {
+        for (int i = 0; i < length; i++) {
+            int width = SmsAnalyzer.getUnicodeWidth(content, i, length);
 
-                parts.add(contentString.substring(0, maxLengthMultipart));
-                contentString.delete(0, maxLengthMultipart);
+            if (partLength + width > maxLengthMultipart) {
+                handler.onPart(Encoding.GSM_UNICODE, partIndex++, numberOfParts, partStart, i);
+                partStart = i;
+                partLength = width;
             } else {
-                parts.add(contentString.toString());
-                break;
+                partLength += width;
             }
+            i += width - 1;
         }
 
-        return parts.toArray(new String[parts.size()]);
+        handler.onPart(Encoding.GSM_UNICODE, partIndex, numberOfParts, partStart, length);
     }
 
-    private static boolean isMultipartSmsLastCharGsm7BitEscapeChar(String content) {
-        return content.charAt(Encoding.GSM_7BIT.getMaxLengthMultiPart() - 1) == GSM0338Charset.ESCAPE_CHAR;
+    private static String escapeAny7BitExtendedCharset(String content, int start, int end) {
+        StringBuilder part = new StringBuilder(Encoding.GSM_7BIT.getMaxLengthSinglePart());
+        for (int i = start; i < end; i++) {
+            char ch = content.charAt(i);
+            if (GSM0338Charset.isExtendedCharsetCharacter(ch)) {
+                part.append(GSM0338Charset.ESCAPE_CHAR);
+            }
+            part.append(ch);
+        }
+
+        return part.toString();
     }
 
+    /**
+     * Collects the part boundaries when the number of parts is not known beforehand
+     */
+    private static final class BoundaryCollector implements SmsPartHandler {
+
+        private int[] boundaries;
+
+        private int count = 1;
+
+        private BoundaryCollector(int capacity) {
+            this.boundaries = new int[capacity];
+        }
+
+        @Override
+        public void onPart(Encoding encoding, int partIndex, int numberOfParts, int start, int end) {
+            if (count == boundaries.length) {
+                boundaries = Arrays.copyOf(boundaries, count * 2);
+            }
+            boundaries[count++] = end;
+        }
+
+        private int[] getBoundaries() {
+            return Arrays.copyOf(boundaries, count);
+        }
+    }
 }
@@ -0,0 +1,408 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.charset.NationalLanguage;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message template with placeholders like "Hi {name}, your code is {otp}", compiled once so that
+ * the encoding and the number of parts of the message sent to each recipient are determined by looking only at
+ * the placeholder values.
+ *
+ * For every static segment of the template the encoding, the length and how it advances the split into parts
+ * are computed upfront: for each position in the current part the segment can start at, the number of parts it adds
+ * and the position in the last part it ends at. The part boundaries, including the rule that a part
+ * cannot end with the escape character, are then followed through the values alone.
+ *
+ * A placeholder is a name made of letters, digits, '_', '.' or '-' between braces, any other brace is part of the
+ * text. The results are the same as for {@link SmsUtils#analyze(CharSequence)} and
+ * {@link SmsUtils#splitSms(String)} on the rendered message.
+ */
+public class SmsTemplate {
+
+    private final String template;
+
+    private final Segment[] segments;
+
+    /**
+     * Placeholder names in the order they appear, placeholder i sitting between segment i and segment i + 1
+     */
+    private final String[] placeholders;
+
+    private SmsTemplate(String template, Segment[] segments, String[] placeholders) {
+        this.template = template;
+        this.segments = segments;
+        this.placeholders = placeholders;
+    }
+
+    public static SmsTemplate compile(String template) {
+        List<Segment> segments = new ArrayList<Segment>();
+        List<String> placeholders = new ArrayList<String>();
+
+        int segmentStart = 0;
+        int i = 0;
+        while (i < template.length()) {
+            int nameEnd = template.charAt(i) == '{' ? getPlaceholderNameEnd(template, i + 1) : -1;
+            if (nameEnd < 0) {
+                i++;
+                continue;
+            }
+
+            segments.add(new Segment(template.substring(segmentStart, i)));
+            placeholders.add(template.substring(i + 1, nameEnd));
+            i = nameEnd + 1;
+            segmentStart = i;
+        }
+        segments.add(new Segment(template.substring(segmentStart)));
+
+        return new SmsTemplate(template, segments.toArray(new Segment[segments.size()]),
+                placeholders.toArray(new String[placeholders.size()]));
+    }
+
+    /**
+     * @return index of the closing brace of the placeholder name starting at the index, -1 if it's not a placeholder
+     */
+    private static int getPlaceholderNameEnd(String template, int nameStart) {
+        for (int i = nameStart; i < template.length(); i++) {
+            char ch = template.charAt(i);
+            if (ch == '}') {
+                return i > nameStart ? i : -1;
+            }
+            if (! (Character.isLetterOrDigit(ch) || ch == '_' || ch == '.' || ch == '-')) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return the placeholder names in the order they appear in the template, a name used twice appearing twice
+     */
+    public List<String> getPlaceholders() {
+        return Collections.unmodifiableList(Arrays.asList(placeholders));
+    }
+
+    public SmsAnalysis analyze(Map<String, ? extends CharSequence> values) {
+        return analyze(getValues(values), new SmsAnalysis());
+    }
+
+    public SmsAnalysis analyze(Map<String, ? extends CharSequence> values, SmsAnalysis result) {
+        return analyze(getValues(values), result);
+    }
+
+    /**
+     * Determines the encoding, the length and the number of parts of the rendered message, without rendering it
+     *
+     * @param values the values in the order of {@link #getPlaceholders()}
+     * @param result result to be filled
+     * @return the given result
+     */
+    public SmsAnalysis analyze(CharSequence[] values, SmsAnalysis result) {
+        checkValues(values);
+
+        if (isGsm7Bit(values)) {
+            return analyzeGsm7Bit(values, result);
+        }
+
+        if (hasSurrogatePairAcrossValues(values)) {
+            return SmsAnalyzer.analyze(render(values), result);
+        }
+        return analyzeUnicode(values, result);
+    }
+
+    public String render(Map<String, ? extends CharSequence> values) {
+        return render(getValues(values));
+    }
+
+    /**
+     * @param values the values in the order of {@link #getPlaceholders()}
+     * @return the message with the placeholders replaced by the values
+     */
+    public String render(CharSequence[] values) {
+        checkValues(values);
+
+        int length = 0;
+        for (int i = 0; i < segments.length; i++) {
+            length += segments[i].text.length() + (i < values.length ? values[i].length() : 0);
+        }
+
+        StringBuilder message = new StringBuilder(length);
+        for (int i = 0; i < segments.length; i++) {
+            message.append(segments[i].text);
+            if (i < values.length) {
+                message.append(values[i]);
+            }
+        }
+        return message.toString();
+    }
+
+    public SmsParts splitSms(Map<String, ? extends CharSequence> values) {
+        return SmsSplitter.splitSms(render(values));
+    }
+
+    /**
+     * @param values the values in the order of {@link #getPlaceholders()}
+     * @return the rendered message split into parts
+     */
+    public SmsParts splitSms(CharSequence[] values) {
+        return SmsSplitter.splitSms(render(values));
+    }
+
+    private CharSequence[] getValues(Map<String, ? extends CharSequence> values) {
+        CharSequence[] orderedValues = new CharSequence[placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) {
+            orderedValues[i] = values.get(placeholders[i]);
+            if (orderedValues[i] == null) {
+                throw new IllegalArgumentException("No value for placeholder '" + placeholders[i] + "'");
+            }
+        }
+        return orderedValues;
+    }
+
+    private void checkValues(CharSequence[] values) {
+        if (values.length != placeholders.length) {
+            throw new IllegalArgumentException("Expected " + placeholders.length + " values but got " + values.length);
+        }
+    }
+
+    private boolean isGsm7Bit(CharSequence[] values) {
+        for (Segment segment : segments) {
+            if (segment.gsm7BitTransitions == null) {
+                return false;
+            }
+        }
+
+        for (CharSequence value : values) {
+            for (int i = 0; i < value.length(); i++) {
+                if (GSM0338Charset.getCharacterType(value.charAt(i)) == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private SmsAnalysis analyzeGsm7Bit(CharSequence[] values, SmsAnalysis result) {
+        int maxLengthMultiPart = Encoding.GSM_7BIT.getMaxLengthMultiPart();
+        int septets = 0;
+        int parts = 1;
+        int partSeptets = 0;
+
+        for (int i = 0; i < segments.length; i++) {
+            Segment segment = segments[i];
+            int transition = segment.gsm7BitTransitions[partSeptets];
+            parts += getAddedParts(transition);
+            partSeptets = getPartEnd(transition);
+            septets += segment.septets;
+
+            if (i == values.length) {
+                break;
+            }
+
+            CharSequence value = values[i];
+            for (int j = 0; j < value.length(); j++) {
+                char ch = value.charAt(j);
+                int width = GSM0338Charset.getCharacterType(ch) == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+                if (partSeptets + width > SmsAnalyzer.getMaxPartEnd(ch, maxLengthMultiPart)) {
+                    parts++;
+                    partSeptets = width;
+                } else {
+                    partSeptets += width;
+                }
+                septets += width;
+            }
+        }
+
+        return fill(result, Encoding.GSM_7BIT, septets,
+                septets <= Encoding.GSM_7BIT.getMaxLengthSinglePart() ? 1 : parts);
+    }
+
+    private SmsAnalysis analyzeUnicode(CharSequence[] values, SmsAnalysis result) {
+        int maxLengthMultiPart = Encoding.GSM_UNICODE.getMaxLengthMultiPart();
+        int length = 0;
+        int parts = 1;
+        int partLength = 0;
+
+        for (int i = 0; i < segments.length; i++) {
+            Segment segment = segments[i];
+            int transition = segment.unicodeTransitions[partLength];
+            parts += getAddedParts(transition);
+            partLength = getPartEnd(transition);
+            length += segment.text.length();
+
+            if (i == values.length) {
+                break;
+            }
+
+            CharSequence value = values[i];
+            int valueLength = value.length();
+            for (int j = 0; j < valueLength; j++) {
+                int width = SmsAnalyzer.getUnicodeWidth(value, j, valueLength);
+                if (partLength + width > maxLengthMultiPart) {
+                    parts++;
+                    partLength = width;
+                } else {
+                    partLength += width;
+                }
+                j += width - 1;
+            }
+            length += valueLength;
+        }
+
+        return fill(result, Encoding.GSM_UNICODE, length,
+                length <= Encoding.GSM_UNICODE.getMaxLengthSinglePart() ? 1 : parts);
+    }
+
+    /**
+     * A high surrogate at the end of a segment or value followed by a low surrogate at the start of the next one
+     * makes a pair the precomputed transitions don't know about
+     */
+    private boolean hasSurrogatePairAcrossValues(CharSequence[] values) {
+        char previous = 0;
+        for (int i = 0; i < segments.length; i++) {
+            String text = segments[i].text;
+            if (text.length() > 0) {
+                if (Character.isHighSurrogate(previous) && Character.isLowSurrogate(text.charAt(0))) {
+                    return true;
+                }
+                previous = text.charAt(text.length() - 1);
+            }
+
+            if (i < values.length && values[i].length() > 0) {
+                CharSequence value = values[i];
+                if (Character.isHighSurrogate(previous) && Character.isLowSurrogate(value.charAt(0))) {
+                    return true;
+                }
+                previous = value.charAt(value.length() - 1);
+            }
+        }
+        return false;
+    }
+
+    private static int getAddedParts(int transition) {
+        return transition >>> 8;
+    }
+
+    private static int getPartEnd(int transition) {
+        return transition & 0xFF;
+    }
+
+    private static SmsAnalysis fill(SmsAnalysis result, Encoding encoding, int length, int numberOfParts) {
+        result.setEncoding(encoding);
+        result.setLength(length);
+        result.setNumberOfParts(numberOfParts);
+        result.setOverflow(false);
+        result.setShiftTables(NationalLanguage.DEFAULT, NationalLanguage.DEFAULT);
+        return result;
+    }
+
+    /**
+     * Static text between placeholders, with the transitions of the split into multipart sms parts:
+     * for each position in the current part the segment can start at, the number of parts it adds
+     * in the upper bits and the position in the last part it ends at in the lower 8 bits
+     */
+    private static class Segment {
+
+        private final String text;
+
+        private final int septets;
+
+        /**
+         * null when the segment has characters outside the GSM0338Charset
+         */
+        private final int[] gsm7BitTransitions;
+
+        private final int[] unicodeTransitions;
+
+        Segment(String text) {
+            this.text = text;
+
+            int septetCount = 0;
+            boolean gsm7Bit = true;
+            for (int i = 0; i < text.length(); i++) {
+                int charType = GSM0338Charset.getCharacterType(text.charAt(i));
+                if (charType == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+                    gsm7Bit = false;
+                    break;
+                }
+                septetCount += charType == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+            }
+
+            this.septets = septetCount;
+            this.gsm7BitTransitions = gsm7Bit ? computeGsm7BitTransitions(text) : null;
+            this.unicodeTransitions = computeUnicodeTransitions(text);
+        }
+
+        private static int[] computeGsm7BitTransitions(String text) {
+            int maxLengthMultiPart = Encoding.GSM_7BIT.getMaxLengthMultiPart();
+            int[] transitions = new int[maxLengthMultiPart + 1];
+
+            for (int start = 0; start <= maxLengthMultiPart; start++) {
+                int addedParts = 0;
+                int partSeptets = start;
+                for (int i = 0; i < text.length(); i++) {
+                    char ch = text.charAt(i);
+                    int width = GSM0338Charset.getCharacterType(ch) == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+                    if (partSeptets + width > SmsAnalyzer.getMaxPartEnd(ch, maxLengthMultiPart)) {
+                        addedParts++;
+                        partSeptets = width;
+                    } else {
+                        partSeptets += width;
+                    }
+                }
+                transitions[start] = addedParts << 8 | partSeptets;
+            }
+            return transitions;
+        }
+
+        private static int[] computeUnicodeTransitions(String text) {
+            int maxLengthMultiPart = Encoding.GSM_UNICODE.getMaxLengthMultiPart();
+            int[] transitions = new int[maxLengthMultiPart + 1];
+            int length = text.length();
+
+            for (int start = 0; start <= maxLengthMultiPart; start++) {
+                int addedParts = 0;
+                int partLength = start;
+                for (int i = 0; i < length; i++) {
+                    int width = SmsAnalyzer.getUnicodeWidth(text, i, length);
+                    if (partLength + width > maxLengthMultiPart) {
+                        addedParts++;
+                        partLength = width;
+                    } else {
+                        partLength += width;
+                    }
+                    i += width - 1;
+                }
+                transitions[start] = addedParts << 8 | partLength;
+            }
+            return transitions;
+        }
+    }
+}
@@ -17,14 +17,24 @@
 package ro.fortsoft.smsutil;
 
 import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.charset.NationalLanguage;
 import ro.fortsoft.smsutil.domain.Parts;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
 import ro.fortsoft.smsutil.domain.SmsParts;
+import ro.fortsoft.smsutil.domain.Transliteration;
+import ro.fortsoft.smsutil.metrics.SmsMetrics;
+import ro.fortsoft.smsutil.metrics.SmsMetricsRecorder;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
 
 /**
  * Utility class for SMS messages
  */
 public class SmsUtils {
 
+    private static final Transliterator DEFAULT_TRANSLITERATOR = Transliterator.withDefaultTable();
+
     /**
      * Determines the necessary Gsm encoding to be used based on the characters in the message
      * @param message message content
@@ -38,6 +48,30 @@ public class SmsUtils {
         return Encoding.GSM_7BIT;
     }
 
+    /**
+     * Same as {@link #getGsmEncoding(String)} for a UTF-8 encoded message, without decoding it into a String
+     *
+     * @param utf8 array holding the UTF-8 encoded message
+     * @param offset start of the message in the array
+     * @param length number of bytes of the message
+     * @return Encoding that needs to be used
+     */
+    public static Encoding getGsmEncoding(byte[] utf8, int offset, int length) {
+        checkRange(utf8.length, offset, length);
+        return Utf8SmsAnalyzer.getEncoding(utf8, offset, offset + length);
+    }
+
+    /**
+     * Same as {@link #getGsmEncoding(String)} for the UTF-8 encoded message between the position and the limit
+     * of the buffer, whose position is left unchanged
+     *
+     * @param utf8 buffer holding the UTF-8 encoded message
+     * @return Encoding that needs to be used
+     */
+    public static Encoding getGsmEncoding(ByteBuffer utf8) {
+        return Utf8SmsAnalyzer.getEncoding(utf8, utf8.position(), utf8.limit());
+    }
+
     /**
      * Determines the necessary encoding based upon the characters in the message and the number of parts the sms
      * needs to be split into
@@ -46,49 +80,147 @@ public class SmsUtils {
      * @return Parts holding the number of parts and the encoding
      */
     public static Parts getNumberOfParts(String content) {
-        Encoding encoding = getGsmEncoding(content);
+        return analyze(content).toParts();
+    }
 
-        if (encoding == Encoding.GSM_7BIT) {
-            return new Parts(Encoding.GSM_7BIT, getNumberOfPartsFor7BitEncoding(content));
-        } else {
-            if (content.length() <= Encoding.GSM_UNICODE.getMaxLengthSinglePart()) {
-                return new Parts(Encoding.GSM_UNICODE, 1);
-            } else {
-                return new Parts(Encoding.GSM_UNICODE,
-                        (int) Math.ceil(content.length() / (float) Encoding.GSM_UNICODE.getMaxLengthMultiPart()));
-            }
-        }
+    /**
+     * Determines in a single pass over the message the encoding, the encoded length and the number of parts,
+     * without building the escaped content
+     *
+     * @param message message
+     * @return SmsAnalysis holding the encoding, the length and the number of parts
+     */
+    public static SmsAnalysis analyze(CharSequence message) {
+        return analyze(message, new SmsAnalysis());
+    }
+
+    /**
+     * Same as {@link #analyze(CharSequence)} but fills the given result, so that no allocation is needed
+     *
+     * @param message message
+     * @param result result to be filled
+     * @return the given result
+     */
+    public static SmsAnalysis analyze(CharSequence message, SmsAnalysis result) {
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        long start = recorder == null ? 0 : System.nanoTime();
+        return recordAnalysis(recorder, start, SmsAnalyzer.analyze(message, result));
     }
 
-    private static int getNumberOfPartsFor7BitEncoding(String content) {
-        String content7bit = escapeAny7BitExtendedCharsetInContent(content);
+    /**
+     * Same as {@link #analyze(CharSequence, SmsAnalysis)} but also counts the message with the national language
+     * shift tables of the given languages, keeping the combination of tables with which it takes the fewest parts.
+     * The room the shift tables take in the User Data Header of each part is accounted for, so the default tables
+     * are kept unless the national ones save parts.
+     *
+     * @param message message
+     * @param languages languages whose tables the recipients support
+     * @param result result to be filled, with the shift tables of the combination that was picked
+     * @return the given result
+     */
+    public static SmsAnalysis analyze(CharSequence message, Set<NationalLanguage> languages, SmsAnalysis result) {
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        long start = recorder == null ? 0 : System.nanoTime();
+        return recordAnalysis(recorder, start, NationalLanguageAnalyzer.analyze(message, languages, result));
+    }
 
-        int messageLength = content7bit.length();
+    /**
+     * Same as {@link #analyze(CharSequence, SmsAnalysis)} for a UTF-8 encoded message, decoding the characters
+     * on the fly instead of building a String. Malformed input counts as the replacement characters the String
+     * decoder would put in its place.
+     *
+     * @param utf8 array holding the UTF-8 encoded message
+     * @param offset start of the message in the array
+     * @param length number of bytes of the message
+     * @param result result to be filled
+     * @return the given result
+     */
+    public static SmsAnalysis analyze(byte[] utf8, int offset, int length, SmsAnalysis result) {
+        checkRange(utf8.length, offset, length);
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        long start = recorder == null ? 0 : System.nanoTime();
+        return recordAnalysis(recorder, start, Utf8SmsAnalyzer.analyze(utf8, offset, offset + length, result));
+    }
 
-        if (content7bit.length() <= Encoding.GSM_7BIT.getMaxLengthSinglePart()) {
-            return 1;
-        }
+    /**
+     * Same as {@link #analyze(byte[], int, int, SmsAnalysis)} for the UTF-8 encoded message between the position
+     * and the limit of the buffer, whose position is left unchanged
+     *
+     * @param utf8 buffer holding the UTF-8 encoded message
+     * @param result result to be filled
+     * @return the given result
+     */
+    public static SmsAnalysis analyze(ByteBuffer utf8, SmsAnalysis result) {
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        long start = recorder == null ? 0 : System.nanoTime();
+        return recordAnalysis(recorder, start, Utf8SmsAnalyzer.analyze(utf8, utf8.position(), utf8.limit(), result));
+    }
+
+    /**
+     * Same as {@link #analyze(CharSequence, SmsAnalysis)} but stops as soon as the message is known to need more
+     * than the given number of parts, so that oversized messages are rejected without looking at all of them
+     *
+     * @param message message
+     * @param maxParts maximum number of parts
+     * @param result result to be filled, {@link SmsAnalysis#isOverflow()} set when the message takes more parts
+     * @return the given result
+     */
+    public static SmsAnalysis analyze(CharSequence message, int maxParts, SmsAnalysis result) {
+        checkMaxParts(maxParts);
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        long start = recorder == null ? 0 : System.nanoTime();
+        return recordAnalysis(recorder, start, SmsAnalyzer.analyze(message, maxParts, result));
+    }
 
-        //number of parts if we don't consider that a message part cannot just end with GSM0338Charset.ESCAPE_CHAR
-        int parts = (int) Math.ceil(messageLength / (float) Encoding.GSM_7BIT.getMaxLengthMultiPart());
+    /**
+     * Length of the longest start of the message which fits in the given number of parts, found by looking
+     * at no more of the message than the parts can hold
+     *
+     * @param message message
+     * @param maxParts maximum number of parts
+     * @return length of the start of the message which fits, the message length if it all fits
+     */
+    public static int getTruncatedLength(CharSequence message, int maxParts) {
+        checkMaxParts(maxParts);
+        return SmsAnalyzer.getTruncatedLength(message, maxParts);
+    }
 
-        //we do some quick "optimisation" checking
-        //if we have enough left characters in a message part, check if it would fill a worst case scenario
-        //where each part was ending with the escape character
-        int lastPartChars = messageLength % Encoding.GSM_7BIT.getMaxLengthMultiPart();
-        int freeChars = 0;
+    /**
+     * Split the longest start of the message which fits in the given number of parts, the rest being dropped.
+     * The encoding is that of the start that is kept.
+     *
+     * @param message message
+     * @param maxParts maximum number of parts
+     * @return the encoding and at most maxParts parts
+     */
+    public static SmsParts truncateSms(CharSequence message, int maxParts) {
+        return SmsSplitter.splitSms(message.subSequence(0, getTruncatedLength(message, maxParts)).toString());
+    }
 
-        if(lastPartChars > 0) {
-            freeChars = Encoding.GSM_7BIT.getMaxLengthMultiPart() - lastPartChars;
+    private static SmsAnalysis recordAnalysis(SmsMetricsRecorder recorder, long start, SmsAnalysis analysis) {
+        if (recorder != null) {
+            recorder.recordAnalysis(analysis.getEncoding(), analysis.getNumberOfParts(), System.nanoTime() - start);
         }
+        return analysis;
+    }
 
-        // There are characters left, don't care about escape character at the end of multiparts
-        if (parts <= freeChars) { //optimization
-            return parts;
+    private static void checkMaxParts(int maxParts) {
+        if (maxParts < 1) {
+            throw new IllegalArgumentException("Maximum number of parts must be at least 1, got " + maxParts);
         }
+    }
 
-        // Otherwise "manually" split the message
-        return SmsSplitter.splitGsm7BitEncodedMessage(content7bit).length;
+    /**
+     * Replaces typographic punctuation and Latin letters outside the GSM0338Charset with their closest charset
+     * characters, so that they don't make the message Unicode encoded
+     *
+     * @param message message
+     * @param policy when the replacements are kept
+     * @return the message to be sent with its encoding and the parts saved
+     * @see Transliterator#withDefaultTable()
+     */
+    public static Transliteration transliterate(CharSequence message, TransliterationPolicy policy) {
+        return DEFAULT_TRANSLITERATOR.transliterate(message, policy);
     }
 
     /**
@@ -99,20 +231,22 @@ public class SmsUtils {
      * @throws IllegalArgumentException when the message contains characters outside the GSM0338Charset
      */
     public static String escapeAny7BitExtendedCharsetInContent(String message) {
-        StringBuilder content7bit = new StringBuilder();
+        StringBuilder content7bit = new StringBuilder(message.length() + 16);
 
-        for (char ch : message.toCharArray()) {
+        for (int i = 0; i < message.length(); i++) {
+            char ch = message.charAt(i);
+            int charType = GSM0338Charset.getCharacterType(ch);
 
             // Add escape characters for extended charset
-            if(GSM0338Charset.isExtendedCharsetCharacter(ch)) {
+            if(charType == GSM0338Charset.EXTENDED_CHARACTER) {
                 content7bit.append(GSM0338Charset.ESCAPE_CHAR);
             } else {
-                if(! GSM0338Charset.isBaseCharsetCharacter(ch)) { //also not in the base charset
+                if(charType != GSM0338Charset.BASE_CHARACTER) { //also not in the base charset
                     throw new IllegalArgumentException("Message contains '" + ch + "' which is not in GSM0338Charset");
                 }
             }
 
-            content7bit.append(Character.toString(ch));
+            content7bit.append(ch);
         }
 
         return content7bit.toString();
@@ -125,7 +259,98 @@ public class SmsUtils {
      * @return Pair&lt;Encoding, List &lt;String&gt;&gt; the encoding and the list of parts the sms has been split into
      */
     public static SmsParts splitSms(String message) {
-        return SmsSplitter.splitSms(message);
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        if (recorder == null) {
+            return SmsSplitter.splitSms(message);
+        }
+
+        long start = System.nanoTime();
+        SmsParts smsParts = SmsSplitter.splitSms(message);
+        recorder.recordSplit(smsParts.getEncoding(), smsParts.getParts().length, System.nanoTime() - start);
+        return smsParts;
+    }
+
+    /**
+     * Split the SMS without copying it, each part is reported to the handler as a range of the message
+     *
+     * @param message message
+     * @param handler receives the parts in order
+     */
+    public static void splitSms(CharSequence message, SmsPartHandler handler) {
+        splitSms(message, new SmsAnalysis(), handler);
+    }
+
+    /**
+     * Same as {@link #splitSms(CharSequence, SmsPartHandler)} but fills the given analysis of the message,
+     * so that no allocation is needed
+     *
+     * @param message message
+     * @param analysis filled with the encoding, the length and the number of parts of the message
+     * @param handler receives the parts in order
+     */
+    public static void splitSms(CharSequence message, SmsAnalysis analysis, SmsPartHandler handler) {
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        long start = recorder == null ? 0 : System.nanoTime();
+        SmsSplitter.split(message, SmsAnalyzer.analyze(message, analysis), handler);
+        recordSplit(recorder, start, analysis);
+    }
+
+    /**
+     * Split a UTF-8 encoded message without decoding it, each part is reported to the handler as a range
+     * of the array, a part boundary never falling inside the bytes of a character
+     *
+     * @param utf8 array holding the UTF-8 encoded message
+     * @param offset start of the message in the array
+     * @param length number of bytes of the message
+     * @param analysis filled with the encoding, the length and the number of parts of the message
+     * @param handler receives the parts in order
+     */
+    public static void splitSms(byte[] utf8, int offset, int length, SmsAnalysis analysis, SmsPartHandler handler) {
+        checkRange(utf8.length, offset, length);
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        long start = recorder == null ? 0 : System.nanoTime();
+        Utf8SmsAnalyzer.split(utf8, offset, offset + length, analysis, handler);
+        recordSplit(recorder, start, analysis);
+    }
+
+    /**
+     * Same as {@link #splitSms(byte[], int, int, SmsAnalysis, SmsPartHandler)} for the UTF-8 encoded message
+     * between the position and the limit of the buffer, the parts being reported as ranges of absolute positions
+     * in the buffer, whose position is left unchanged
+     *
+     * @param utf8 buffer holding the UTF-8 encoded message
+     * @param analysis filled with the encoding, the length and the number of parts of the message
+     * @param handler receives the parts in order
+     */
+    public static void splitSms(ByteBuffer utf8, SmsAnalysis analysis, SmsPartHandler handler) {
+        SmsMetricsRecorder recorder = SmsMetrics.getRecorder();
+        long start = recorder == null ? 0 : System.nanoTime();
+        Utf8SmsAnalyzer.split(utf8, utf8.position(), utf8.limit(), analysis, handler);
+        recordSplit(recorder, start, analysis);
+    }
+
+    private static void recordSplit(SmsMetricsRecorder recorder, long start, SmsAnalysis analysis) {
+        if (recorder != null) {
+            recorder.recordSplit(analysis.getEncoding(), analysis.getNumberOfParts(), System.nanoTime() - start);
+        }
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > arrayLength) {
+            throw new IllegalArgumentException("Range of " + length + " bytes at " + offset
+                    + " is outside the array of " + arrayLength + " bytes");
+        }
+    }
+
+    /**
+     * Split the SMS without copying it
+     *
+     * @param message message
+     * @param analysis filled with the encoding, the length and the number of parts of the message
+     * @return the part boundaries, part i being the range [boundaries[i], boundaries[i + 1]) of the message
+     */
+    public static int[] getPartBoundaries(CharSequence message, SmsAnalysis analysis) {
+        return SmsSplitter.getPartBoundaries(message, analysis);
     }
 
 }
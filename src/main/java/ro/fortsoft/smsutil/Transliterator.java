@@ -0,0 +1,250 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.Transliteration;
+
+import java.util.Arrays;
+
+/**
+ * Replaces characters outside the GSM0338Charset, like typographic quotes or accented letters, with characters
+ * of the charset, so that a single such character doesn't make the whole message Unicode encoded.
+ *
+ * The replacements are looked up in a two-level table indexed by the character itself, the message being
+ * transliterated in a single pass which also simulates the split of the result into 7bit parts.
+ * The table is set up with {@link #map(String, String)}, after which the transliterator can be shared between threads.
+ */
+public class Transliterator {
+
+    /**
+     * Characters outside the charset, grouped by their replacement
+     */
+    private static final String[][] DEFAULT_REPLACEMENTS = {
+            {"\u2018\u2019\u201A\u201B\u2032\u00B4`", "'"},
+            {"\u201C\u201D\u201E\u201F\u2033\u00AB\u00BB", "\""},
+            {"\u2010\u2011\u2012\u2013\u2014\u2015\u2212", "-"},
+            {"\u2026", "..."},
+            {"\u00A0\u2002\u2003\u2009\u202F\t", " "},
+            {"\u200B\u200C\u200D\uFEFF\u00AD", ""},
+            {"\u2022\u00B7", "-"},
+            {"ÀÁÂÃĀĂĄ", "A"},
+            {"áâãāăą", "a"},
+            {"ÇĆĈČ", "C"},
+            {"ćĉč", "c"},
+            {"ĎĐ", "D"},
+            {"ďđ", "d"},
+            {"ÈÊËĒĖĘĚ", "E"},
+            {"êëēėęě", "e"},
+            {"ĞĢ", "G"},
+            {"ğģ", "g"},
+            {"ÌÍÎÏĪĮİ", "I"},
+            {"íîïīįı", "i"},
+            {"ŁĻĽ", "L"},
+            {"łļľ", "l"},
+            {"ŃŇŅ", "N"},
+            {"ńňņ", "n"},
+            {"ÒÓÔÕŌ", "O"},
+            {"óôõō", "o"},
+            {"Ő", "Ö"},
+            {"ő", "ö"},
+            {"Œ", "OE"},
+            {"œ", "oe"},
+            {"Ř", "R"},
+            {"ř", "r"},
+            {"ŚŞŠȘ", "S"},
+            {"śşšș", "s"},
+            {"ŢŤȚ", "T"},
+            {"ţťț", "t"},
+            {"ÙÚÛŪŮŲ", "U"},
+            {"úûūůų", "u"},
+            {"Ű", "Ü"},
+            {"ű", "ü"},
+            {"ÝŸ", "Y"},
+            {"ýÿ", "y"},
+            {"ŹŻŽ", "Z"},
+            {"źżž", "z"}
+    };
+
+    private static final int MAPPED = 1 << 31;
+
+    /**
+     * For each block of 256 characters the replacements of its characters, null when none of them has one:
+     * {@link #MAPPED} set for a character with a replacement, which is at the offset held in the middle bits
+     * of {@link #replacements} and has the length held in the lower 8 bits
+     */
+    private final int[][] table = new int[256][];
+
+    private char[] replacements = new char[0];
+
+    /**
+     * Creates a transliterator with no replacements
+     */
+    public Transliterator() {
+    }
+
+    /**
+     * @return a transliterator replacing typographic punctuation and Latin letters outside the charset
+     * with their closest GSM0338Charset characters
+     */
+    public static Transliterator withDefaultTable() {
+        Transliterator transliterator = new Transliterator();
+        for (String[] replacement : DEFAULT_REPLACEMENTS) {
+            transliterator.map(replacement[0], replacement[1]);
+        }
+        return transliterator;
+    }
+
+    /**
+     * Replaces each of the characters with the replacement, overriding a previous replacement of the character
+     *
+     * @param characters characters to be replaced, which cannot be surrogates
+     * @param replacement characters of the GSM0338Charset, possibly none to drop the characters
+     * @return this transliterator
+     * @throws IllegalArgumentException when the replacement is not in the charset or too long
+     */
+    public Transliterator map(String characters, String replacement) {
+        if (!GSM0338Charset.containsOnlyCharsetCharacters(replacement, true)) {
+            throw new IllegalArgumentException("Replacement '" + replacement + "' is not in GSM0338Charset");
+        }
+        if (replacement.length() > 0xFF) {
+            throw new IllegalArgumentException("Replacement of " + replacement.length()
+                    + " characters is longer than 255");
+        }
+
+        int offset = replacements.length;
+        replacements = Arrays.copyOf(replacements, offset + replacement.length());
+        replacement.getChars(0, replacement.length(), replacements, offset);
+
+        for (int i = 0; i < characters.length(); i++) {
+            char ch = characters.charAt(i);
+            if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+                throw new IllegalArgumentException("Surrogate " + (int) ch + " cannot be replaced");
+            }
+
+            int[] block = table[ch >>> 8];
+            if (block == null) {
+                block = new int[256];
+                table[ch >>> 8] = block;
+            }
+            block[ch & 0xFF] = MAPPED | offset << 8 | replacement.length();
+        }
+        return this;
+    }
+
+    /**
+     * @return the replacement of the character, null if it has none
+     */
+    public String getReplacement(char ch) {
+        int entry = getEntry(ch);
+        return entry == 0 ? null : new String(replacements, getOffset(entry), getLength(entry));
+    }
+
+    /**
+     * Replaces the characters of the message which have a replacement and analyses the result,
+     * keeping the replacements as the policy says
+     *
+     * @param message message
+     * @param policy when the replacements are kept
+     * @return the message to be sent, with the analysis of the message with and without the replacements
+     */
+    public Transliteration transliterate(CharSequence message, TransliterationPolicy policy) {
+        int length = message.length();
+        StringBuilder transliterated = new StringBuilder(length);
+        char[] replacements = this.replacements;
+
+        int maxLengthMultiPart = Encoding.GSM_7BIT.getMaxLengthMultiPart();
+        int septets = 0;
+        int parts = 1;
+        int partSeptets = 0;
+        int firstUnicodeIndex = -1;
+        int replaced = 0;
+
+        for (int i = 0; i < length; i++) {
+            char ch = message.charAt(i);
+            int entry = getEntry(ch);
+
+            int start;
+            int end;
+            if (entry == 0) {
+                transliterated.append(ch);
+                start = transliterated.length() - 1;
+                end = start + 1;
+            } else {
+                replaced++;
+                start = transliterated.length();
+                transliterated.append(replacements, getOffset(entry), getLength(entry));
+                end = transliterated.length();
+            }
+
+            // the part split is simulated until the first character outside the charset
+            for (int j = start; j < end && firstUnicodeIndex < 0; j++) {
+                char out = transliterated.charAt(j);
+                int charType = GSM0338Charset.getCharacterType(out);
+                if (charType == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+                    firstUnicodeIndex = j;
+                    break;
+                }
+
+                int width = charType == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+                if (partSeptets + width > SmsAnalyzer.getMaxPartEnd(out, maxLengthMultiPart)) {
+                    parts++;
+                    partSeptets = width;
+                } else {
+                    partSeptets += width;
+                }
+                septets += width;
+            }
+        }
+
+        SmsAnalysis analysis = new SmsAnalysis();
+        if (firstUnicodeIndex >= 0) {
+            analysis.setEncoding(Encoding.GSM_UNICODE);
+            analysis.setLength(transliterated.length());
+            analysis.setNumberOfParts(SmsAnalyzer.getNumberOfPartsForUnicodeEncoding(transliterated,
+                    firstUnicodeIndex));
+        } else {
+            analysis.setEncoding(Encoding.GSM_7BIT);
+            analysis.setLength(septets);
+            analysis.setNumberOfParts(septets <= Encoding.GSM_7BIT.getMaxLengthSinglePart() ? 1 : parts);
+        }
+
+        if (replaced == 0) {
+            return new Transliteration(message.toString(), false, 0, analysis, analysis);
+        }
+
+        SmsAnalysis originalAnalysis = SmsAnalyzer.analyze(message, new SmsAnalysis());
+        boolean applied = policy == TransliterationPolicy.ALWAYS
+                || analysis.getNumberOfParts() < originalAnalysis.getNumberOfParts();
+        return new Transliteration(applied ? transliterated.toString() : message.toString(), applied, replaced,
+                originalAnalysis, analysis);
+    }
+
+    private int getEntry(char ch) {
+        int[] block = table[ch >>> 8];
+        return block == null ? 0 : block[ch & 0xFF];
+    }
+
+    private static int getOffset(int entry) {
+        return (entry & ~MAPPED) >>> 8;
+    }
+
+    private static int getLength(int entry) {
+        return entry & 0xFF;
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.charset.NationalLanguage;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Same analysis as {@link SmsAnalyzer} and same split as {@link SmsSplitter} made straight on UTF-8 encoded bytes,
+ * decoding the code points on the fly instead of building a String, ASCII bytes being taken as they are.
+ *
+ * Malformed input is handled as the JDK UTF-8 decoder does when building a String, each malformed sequence
+ * counting as one U+FFFD replacement character, so the results are the same as analysing the decoded String.
+ *
+ * The bytes come either from an array or from a ByteBuffer without an accessible array, like a direct or mapped one,
+ * the other one being null, so that the same code reads both without wrapping the array.
+ */
+final class Utf8SmsAnalyzer {
+
+    private static final int REPLACEMENT_CHAR = 0xFFFD;
+
+    private Utf8SmsAnalyzer() {
+    }
+
+    static Encoding getEncoding(byte[] bytes, int start, int end) {
+        return getEncoding(bytes, null, start, end);
+    }
+
+    /**
+     * Determines the encoding of the UTF-8 bytes between the given absolute positions of the buffer,
+     * without changing its position
+     */
+    static Encoding getEncoding(ByteBuffer buffer, int start, int end) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return getEncoding(buffer.array(), null, start + offset, end + offset);
+        }
+        return getEncoding(null, buffer, start, end);
+    }
+
+    static SmsAnalysis analyze(byte[] bytes, int start, int end, SmsAnalysis result) {
+        return analyze(bytes, null, start, end, result);
+    }
+
+    /**
+     * Analyses the UTF-8 bytes between the given absolute positions of the buffer, without changing its position
+     */
+    static SmsAnalysis analyze(ByteBuffer buffer, int start, int end, SmsAnalysis result) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return analyze(buffer.array(), null, start + offset, end + offset, result);
+        }
+        return analyze(null, buffer, start, end, result);
+    }
+
+    static void split(byte[] bytes, int start, int end, SmsAnalysis analysis, SmsPartHandler handler) {
+        split(bytes, null, start, end, 0, analyze(bytes, null, start, end, analysis), handler);
+    }
+
+    /**
+     * Reports the parts of the UTF-8 bytes between the given absolute positions of the buffer as ranges
+     * of absolute positions
+     */
+    static void split(ByteBuffer buffer, int start, int end, SmsAnalysis analysis, SmsPartHandler handler) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            byte[] array = buffer.array();
+            split(array, null, start + offset, end + offset, offset,
+                    analyze(array, null, start + offset, end + offset, analysis), handler);
+        } else {
+            split(null, buffer, start, end, 0, analyze(null, buffer, start, end, analysis), handler);
+        }
+    }
+
+    private static Encoding getEncoding(byte[] array, ByteBuffer buffer, int start, int end) {
+        int position = start;
+        while (position < end) {
+            position += getBasicLength(array, buffer, position, end);
+            if (position == end) {
+                break;
+            }
+
+            int b = get(array, buffer, position);
+            int codePoint;
+            if (b >= 0) {
+                codePoint = b;
+                position++;
+            } else {
+                int decoded = decode(array, buffer, position, end);
+                codePoint = getCodePoint(decoded);
+                position += getByteLength(decoded);
+            }
+
+            if (getCharacterType(codePoint) == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+                return Encoding.GSM_UNICODE;
+            }
+        }
+        return Encoding.GSM_7BIT;
+    }
+
+    private static SmsAnalysis analyze(byte[] array, ByteBuffer buffer, int start, int end, SmsAnalysis result) {
+        int maxLengthMultiPart = Encoding.GSM_7BIT.getMaxLengthMultiPart();
+        int length = 0;
+        int septets = 0;
+        int parts = 1;
+        int partSeptets = 0;
+
+        int position = start;
+        while (position < end) {
+            int run = getBasicLength(array, buffer, position, end);
+            if (run > 0) {
+                septets += run;
+                length += run;
+                partSeptets += run;
+                if (partSeptets > maxLengthMultiPart) {
+                    int fullParts = (partSeptets - 1) / maxLengthMultiPart;
+                    parts += fullParts;
+                    partSeptets -= fullParts * maxLengthMultiPart;
+                }
+
+                position += run;
+                if (position == end) {
+                    break;
+                }
+            }
+
+            int b = get(array, buffer, position);
+            int codePoint;
+            int byteLength;
+            if (b >= 0) {
+                codePoint = b;
+                byteLength = 1;
+            } else {
+                int decoded = decode(array, buffer, position, end);
+                codePoint = getCodePoint(decoded);
+                byteLength = getByteLength(decoded);
+            }
+
+            int charType = getCharacterType(codePoint);
+            if (charType == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+                return analyzeUnicode(array, buffer, position, end, length, result);
+            }
+
+            int width = charType == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+            if (partSeptets + width > SmsAnalyzer.getMaxPartEnd((char) codePoint, maxLengthMultiPart)) {
+                parts++;
+                partSeptets = width;
+            } else {
+                partSeptets += width;
+            }
+            septets += width;
+            length++;
+
+            position += byteLength;
+        }
+
+        if (septets <= Encoding.GSM_7BIT.getMaxLengthSinglePart()) {
+            parts = 1;
+        }
+
+        return fill(result, Encoding.GSM_7BIT, septets, parts);
+    }
+
+    /**
+     * Continues the analysis from the first character outside the GSM0338Charset, all the characters before it
+     * taking a single UTF-16 char
+     */
+    private static SmsAnalysis analyzeUnicode(byte[] array, ByteBuffer buffer, int position, int end, int length,
+                                              SmsAnalysis result) {
+        int maxLengthMultiPart = Encoding.GSM_UNICODE.getMaxLengthMultiPart();
+        int parts = length == 0 ? 1 : (length - 1) / maxLengthMultiPart + 1;
+        int partLength = length - (parts - 1) * maxLengthMultiPart;
+
+        while (position < end) {
+            int width = 1;
+            if (get(array, buffer, position) >= 0) {
+                position++;
+            } else {
+                int decoded = decode(array, buffer, position, end);
+                width = getCodePoint(decoded) >= Character.MIN_SUPPLEMENTARY_CODE_POINT ? 2 : 1;
+                position += getByteLength(decoded);
+            }
+
+            if (partLength + width > maxLengthMultiPart) {
+                parts++;
+                partLength = width;
+            } else {
+                partLength += width;
+            }
+            length += width;
+        }
+
+        if (length <= Encoding.GSM_UNICODE.getMaxLengthSinglePart()) {
+            parts = 1;
+        }
+
+        return fill(result, Encoding.GSM_UNICODE, length, parts);
+    }
+
+    /**
+     * Reports the parts of already analysed bytes, the positions reported being shifted back by the offset
+     */
+    private static void split(byte[] array, ByteBuffer buffer, int start, int end, int offset, SmsAnalysis analysis,
+                              SmsPartHandler handler) {
+        Encoding encoding = analysis.getEncoding();
+        int numberOfParts = analysis.getNumberOfParts();
+        if (numberOfParts == 1) {
+            handler.onPart(encoding, 0, 1, start - offset, end - offset);
+            return;
+        }
+
+        boolean gsm7Bit = encoding == Encoding.GSM_7BIT;
+        int maxLengthMultiPart = encoding.getMaxLengthMultiPart();
+        int partIndex = 0;
+        int partStart = start;
+        int partLength = 0;
+        int escapeAdjustments = 0;
+
+        int position = start;
+        while (position < end) {
+            int b = get(array, buffer, position);
+            int codePoint;
+            int byteLength;
+            if (b >= 0) {
+                codePoint = b;
+                byteLength = 1;
+            } else {
+                int decoded = decode(array, buffer, position, end);
+                codePoint = getCodePoint(decoded);
+                byteLength = getByteLength(decoded);
+            }
+
+            int width;
+            int maxPartEnd;
+            if (gsm7Bit) {
+                width = getCharacterType(codePoint) == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+                maxPartEnd = SmsAnalyzer.getMaxPartEnd((char) codePoint, maxLengthMultiPart);
+            } else {
+                width = codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT ? 2 : 1;
+                maxPartEnd = maxLengthMultiPart;
+            }
+
+            if (partLength + width > maxPartEnd) {
+                if (gsm7Bit && partLength < maxLengthMultiPart) {
+                    escapeAdjustments++;
+                }
+                handler.onPart(encoding, partIndex++, numberOfParts, partStart - offset, position - offset);
+                partStart = position;
+                partLength = width;
+            } else {
+                partLength += width;
+            }
+            position += byteLength;
+        }
+
+        handler.onPart(encoding, partIndex, numberOfParts, partStart - offset, end - offset);
+        SmsSplitter.recordEscapeAdjustments(escapeAdjustments);
+    }
+
+    private static int getCharacterType(int codePoint) {
+        return codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT ?
+                GSM0338Charset.getCharacterType((char) codePoint) : GSM0338Charset.UNSUPPORTED_CHARACTER;
+    }
+
+    private static SmsAnalysis fill(SmsAnalysis result, Encoding encoding, int length, int numberOfParts) {
+        result.setEncoding(encoding);
+        result.setLength(length);
+        result.setNumberOfParts(numberOfParts);
+        result.setOverflow(false);
+        result.setShiftTables(NationalLanguage.DEFAULT, NationalLanguage.DEFAULT);
+        return result;
+    }
+
+    /**
+     * Number of plain ASCII single septet bytes from the absolute position, see {@link BasicCharsetScanner}
+     */
+    private static int getBasicLength(byte[] array, ByteBuffer buffer, int position, int end) {
+        return array != null ? BasicCharsetScanner.getBasicLength(array, position, end)
+                : BasicCharsetScanner.getBasicLength(buffer, position, end);
+    }
+
+    private static int get(byte[] array, ByteBuffer buffer, int index) {
+        return array != null ? array[index] : buffer.get(index);
+    }
+
+    static int getCodePoint(int decoded) {
+        return decoded & 0x1FFFFF;
+    }
+
+    static int getByteLength(int decoded) {
+        return decoded >>> 24;
+    }
+
+    /**
+     * Decodes the code point starting at the given absolute position
+     *
+     * @return the code point in the lower 21 bits and the number of bytes it took in the upper 8 bits
+     */
+    static int decode(byte[] array, ByteBuffer buffer, int position, int end) {
+        int available = end - position;
+        return decode(get(array, buffer, position),
+                available > 1 ? get(array, buffer, position + 1) : 0,
+                available > 2 ? get(array, buffer, position + 2) : 0,
+                available > 3 ? get(array, buffer, position + 3) : 0,
+                available);
+    }
+
+    /**
+     * Decodes the code point starting with b1, only the first available bytes being part of the input
+     */
+    private static int decode(int b1, int b2, int b3, int b4, int available) {
+        if (b1 >= 0) {
+            return 1 << 24 | b1;
+        }
+
+        if ((b1 >> 5) == -2 && (b1 & 0x1E) != 0) {
+            if (available > 1) {
+                if (isNotContinuation(b2)) {
+                    return malformed(1);
+                }
+                return 2 << 24 | (b1 & 0x1F) << 6 | (b2 & 0x3F);
+            }
+            return malformed(1);
+        }
+
+        if ((b1 >> 4) == -2) {
+            if (available > 2) {
+                if (isMalformed3Prefix(b1, b2)) {
+                    return malformed(1);
+                }
+                if (isNotContinuation(b3)) {
+                    return malformed(2);
+                }
+
+                int ch = (b1 & 0x0F) << 12 | (b2 & 0x3F) << 6 | (b3 & 0x3F);
+                return 3 << 24 | (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE ?
+                        REPLACEMENT_CHAR : ch);
+            }
+            if (available > 1 && isMalformed3Prefix(b1, b2)) {
+                return malformed(1);
+            }
+            return malformed(available);
+        }
+
+        if ((b1 >> 3) == -2) {
+            int u1 = b1 & 0xFF;
+            if (available > 3) {
+                int codePoint = (b1 & 0x07) << 18 | (b2 & 0x3F) << 12 | (b3 & 0x3F) << 6 | (b4 & 0x3F);
+
+                if (isNotContinuation(b2) || isNotContinuation(b3) || isNotContinuation(b4)
+                        || codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT
+                        || codePoint > Character.MAX_CODE_POINT) {
+                    if (isMalformed4Prefix(u1, b2 & 0xFF)) {
+                        return malformed(1);
+                    }
+                    return malformed(isNotContinuation(b3) ? 2 : 3);
+                }
+                return 4 << 24 | codePoint;
+            }
+            if (u1 > 0xF4 || available > 1 && isMalformed4Prefix(u1, b2 & 0xFF)) {
+                return malformed(1);
+            }
+            if (available > 2 && isNotContinuation(b3)) {
+                return malformed(2);
+            }
+            return malformed(available);
+        }
+
+        return malformed(1);
+    }
+
+    private static int malformed(int byteLength) {
+        return byteLength << 24 | REPLACEMENT_CHAR;
+    }
+
+    private static boolean isNotContinuation(int b) {
+        return (b & 0xC0) != 0x80;
+    }
+
+    private static boolean isMalformed3Prefix(int b1, int b2) {
+        return (b1 == (byte) 0xE0 && (b2 & 0xE0) == 0x80) || isNotContinuation(b2);
+    }
+
+    private static boolean isMalformed4Prefix(int u1, int u2) {
+        return u1 > 0xF4
+                || (u1 == 0xF0 && (u2 < 0x90 || u2 > 0xBF))
+                || (u1 == 0xF4 && (u2 & 0xF0) != 0x80)
+                || isNotContinuation(u2);
+    }
+}
@@ -16,8 +16,10 @@
 
 package ro.fortsoft.smsutil.charset;
 
+import java.util.AbstractSet;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -30,46 +32,118 @@ import java.util.Set;
  * which means that the characters from the extended charset are counted as 2 characters,
  * but still can be encoded in 7bit.
  *
+ * The tables are generated at build time from src/main/charset/GSM0338.TXT into {@code GSM0338Tables}.
  */
 public class GSM0338Charset {
 
     public static final char ESCAPE_CHAR = '\u001b';
 
+    /**
+     * Character type returned by {@link #getCharacterType(char)} for characters outside the GSM 03.38 charset
+     */
+    public static final int UNSUPPORTED_CHARACTER = 0;
 
-    public static final Set<String> BASE_CHARSET = new HashSet<String>(Arrays.asList(
-            new String[] {
-                    "@", "£", "$", "¥", "è", "é", "ù", "ì", "ò", "ç", "\n", "Ø", "ø", "\r", "Å", "å",
-                    "Δ", "_", "Φ", "Γ", "Λ", "Ω", "Π", "Ψ", "Σ", "Θ", "Ξ", "\u001b", "Æ", "æ", "ß", "É",
-                    " ", "!", "'", "#", "¤", "%", "&", "\"", "(", ")", "*", "+", ",", "-", ".", "/",
-                    "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", ":", ";", "<", "=", ">", "?",
-                    "¡", "A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "N", "O",
-                    "P", "Q", "R", "S", "T", "U", "V", "W", "X", "Y", "Z", "Ä", "Ö", "Ñ", "Ü", "§",
-                    "¿", "a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n", "o",
-                    "p", "q", "r", "s", "t", "u", "v", "w", "x", "y", "z", "ä", "ö", "ñ", "ü", "à"
-            }
-    ));
+    /**
+     * Character type returned by {@link #getCharacterType(char)} for characters in the base charset
+     */
+    public static final int BASE_CHARACTER = 1;
+
+    /**
+     * Character type returned by {@link #getCharacterType(char)} for characters in the extended charset
+     */
+    public static final int EXTENDED_CHARACTER = 2;
+
+    /**
+     * Base charset characters, in the order of their GSM 03.38 code.
+     * The tables are generated at build time from <i>src/main/charset/GSM0338.TXT</i> into GSM0338Tables, whose
+     * String constants are copied into arrays, so that loading the class computes nothing.
+     */
+    private static final char[] BASE_CHARACTERS = GSM0338Tables.BASE_CHARACTERS.toCharArray();
+
+    /**
+     * Extended table indexed by the code following the escape character, 0 where no character is defined
+     */
+    private static final char[] EXTENDED_TABLE = GSM0338Tables.EXTENDED_CHARACTERS.toCharArray();
+
+    /**
+     * Entries for the Latin-1 range indexed by the character itself, an entry holding the character type
+     * above the lower 7 bits and the GSM 03.38 code in the lower 7 bits
+     */
+    private static final char[] LATIN1_ENTRIES = GSM0338Tables.LATIN1_ENTRIES.toCharArray();
+
+    /**
+     * Sorted characters above the Latin-1 range (Greek capitals and €) with their entries in
+     * {@link #NON_LATIN1_ENTRIES} at the same index
+     */
+    private static final char[] NON_LATIN1_CHARACTERS = GSM0338Tables.NON_LATIN1_CHARACTERS.toCharArray();
+
+    private static final char[] NON_LATIN1_ENTRIES = GSM0338Tables.NON_LATIN1_ENTRIES.toCharArray();
+
+    public static final Set<String> BASE_CHARSET = new CharsetView(BASE_CHARACTERS, BASE_CHARACTER);
 
     /**
      * The GSM 03.38 specifies an extended charset that still qualify for 7Bit encoding but for which an escape
      * character must be added before the character thus a character for this charset takes up 2 positions in the sms
      */
-    public static final Set<String> EXTENDED_CHARSET = new HashSet<String>(Arrays.asList(
-            new String[] {
-                    "\f", "^", "{", "}", "\\", "[", "~", "]", "|", "€"
-            }
-    ));
+    public static final Set<String> EXTENDED_CHARSET = new CharsetView(EXTENDED_TABLE, EXTENDED_CHARACTER);
 
     public static boolean containsOnlyBaseCharsetCharacters(String content) {
         return containsOnlyCharsetCharacters(content, false);
     }
 
+    /**
+     * Classifies the character against the GSM 03.38 charset in a single table lookup
+     * @param ch character
+     * @return {@link #BASE_CHARACTER}, {@link #EXTENDED_CHARACTER} or {@link #UNSUPPORTED_CHARACTER}
+     */
+    public static int getCharacterType(char ch) {
+        return getEntry(ch) >>> 7;
+    }
+
+    /**
+     * Looks up the GSM 03.38 code of the character. For extended charset characters this is the code
+     * in the extended table, which must be preceded by the {@link #ESCAPE_CHAR}
+     * @param ch character
+     * @return code of the character, -1 if the character is outside the charset
+     */
+    public static int getCode(char ch) {
+        int entry = getEntry(ch);
+        return entry == 0 ? -1 : entry & 0x7F;
+    }
+
+    /**
+     * @param code GSM 03.38 code between 0 and 127
+     * @return the character of the code in the base table
+     */
+    public static char getBaseCharacter(int code) {
+        return BASE_CHARACTERS[code];
+    }
+
+    /**
+     * @param code GSM 03.38 code between 0 and 127 following the escape character
+     * @return the character of the code in the extended table, -1 if the code has no extended character
+     */
+    public static int getExtendedCharacter(int code) {
+        char ch = EXTENDED_TABLE[code];
+        return ch == 0 ? -1 : ch;
+    }
+
+    private static int getEntry(char ch) {
+        if (ch < 256) {
+            return LATIN1_ENTRIES[ch];
+        }
+
+        int index = Arrays.binarySearch(NON_LATIN1_CHARACTERS, ch);
+        return index >= 0 ? NON_LATIN1_ENTRIES[index] : 0;
+    }
+
     /**
      * Checks that the character belongs to the base charset
      * @param ch character
      * @return character belongs to base charset
      */
     public static boolean isBaseCharsetCharacter(char ch) {
-        return BASE_CHARSET.contains(Character.toString(ch));
+        return getCharacterType(ch) == BASE_CHARACTER;
     }
 
     /**
@@ -78,7 +152,7 @@ public class GSM0338Charset {
      * @return character belongs to extended charset
      */
     public static boolean isExtendedCharsetCharacter(char ch) {
-        return EXTENDED_CHARSET.contains(Character.toString(ch));
+        return getCharacterType(ch) == EXTENDED_CHARACTER;
     }
 
     /**
@@ -89,10 +163,11 @@ public class GSM0338Charset {
      * @return true if the message doesn't contain characters outside the charset
      */
     public static boolean containsOnlyCharsetCharacters(String message, boolean includeExtendedCharset) {
-        for (char ch : message.toCharArray()) {
-            if (! (BASE_CHARSET.contains(Character.toString(ch)) ||
-                    (includeExtendedCharset && isExtendedCharsetCharacter(ch))
-                  )) {
+        int maxAllowedType = includeExtendedCharset ? EXTENDED_CHARACTER : BASE_CHARACTER;
+
+        for (int i = 0; i < message.length(); i++) {
+            int type = getCharacterType(message.charAt(i));
+            if (type == UNSUPPORTED_CHARACTER || type > maxAllowedType) {
                 return false;
             }
         }
@@ -100,4 +175,75 @@ public class GSM0338Charset {
         return true;
     }
 
+    /**
+     * Read only set of the characters of a table as one character Strings, looked up in the charset tables
+     * instead of holding the Strings
+     */
+    private static class CharsetView extends AbstractSet<String> {
+
+        private final char[] table;
+
+        private final int characterType;
+
+        private final int size;
+
+        CharsetView(char[] table, int characterType) {
+            this.table = table;
+            this.characterType = characterType;
+
+            int count = 0;
+            for (char ch : table) {
+                if (ch != 0) {
+                    count++;
+                }
+            }
+            this.size = count;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && ((String) o).length() == 1
+                    && getCharacterType(((String) o).charAt(0)) == characterType;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+
+                private int code = next(0);
+
+                @Override
+                public boolean hasNext() {
+                    return code < table.length;
+                }
+
+                @Override
+                public String next() {
+                    if (code >= table.length) {
+                        throw new NoSuchElementException();
+                    }
+                    String ch = Character.toString(table[code]);
+                    code = next(code + 1);
+                    return ch;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                private int next(int from) {
+                    while (from < table.length && table[from] == 0) {
+                        from++;
+                    }
+                    return from;
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.charset;
+
+import java.nio.charset.Charset;
+import java.nio.charset.spi.CharsetProvider;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Makes the {@link UnpackedGSM0338Charset} available through {@link Charset#forName(String)}.
+ * It's registered in META-INF/services, which the JDK only looks up through the system class loader,
+ * so in containers with their own class loaders {@link UnpackedGSM0338Charset#INSTANCE} must be used directly.
+ */
+public class GSM0338CharsetProvider extends CharsetProvider {
+
+    @Override
+    public Iterator<Charset> charsets() {
+        return Collections.<Charset>singletonList(UnpackedGSM0338Charset.INSTANCE).iterator();
+    }
+
+    @Override
+    public Charset charsetForName(String charsetName) {
+        if (UnpackedGSM0338Charset.INSTANCE.name().equalsIgnoreCase(charsetName)) {
+            return UnpackedGSM0338Charset.INSTANCE;
+        }
+        for (String alias : UnpackedGSM0338Charset.INSTANCE.aliases()) {
+            if (alias.equalsIgnoreCase(charsetName)) {
+                return UnpackedGSM0338Charset.INSTANCE;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Packs GSM 03.38 characters as 7 bit septets, 8 septets in 7 bytes, and unpacks them back.
+ * Extended charset characters are written as the {@link GSM0338Charset#ESCAPE_CHAR} septet followed by their code.
+ * The escape character itself is rejected like the characters outside the charset: written alone it would be read
+ * back as the escape of the character following it.
+ *
+ * When the user data starts with a User Data Header, the septets must start on a septet boundary, so fill bits
+ * are added after the header, see {@link #getFillBits(int)}. For the 6 bytes concatenation header this is 1 bit,
+ * leaving room for 153 septets in the 140 bytes of the user data.
+ *
+ * The buffers are written and read from their current position, so both heap and direct buffers can be used,
+ * and nothing is allocated.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/GSM_03.38">Wikipedia GSM 03.38</a>
+ */
+public final class GSM7BitCodec {
+
+    private GSM7BitCodec() {
+    }
+
+    /**
+     * @param udhLength length in bytes of the User Data Header, including its length byte
+     * @return the number of fill bits needed after the header for the septets to start on a septet boundary
+     */
+    public static int getFillBits(int udhLength) {
+        return (7 - (udhLength * 8) % 7) % 7;
+    }
+
+    /**
+     * @param septets number of septets
+     * @param fillBits number of fill bits before the first septet
+     * @return the number of bytes the packed septets take up
+     */
+    public static int getPackedLength(int septets, int fillBits) {
+        return (fillBits + septets * 7 + 7) / 8;
+    }
+
+    /**
+     * Number of septets the characters in the range take up, the extended charset characters counting as 2
+     *
+     * @throws IllegalArgumentException when the range contains characters outside the GSM0338Charset or the
+     * escape character
+     */
+    public static int getSeptetLength(CharSequence content, int start, int end) {
+        int septets = 0;
+        for (int i = start; i < end; i++) {
+            char ch = content.charAt(i);
+            int charType = GSM0338Charset.getCharacterType(ch);
+            if (charType == GSM0338Charset.UNSUPPORTED_CHARACTER || ch == GSM0338Charset.ESCAPE_CHAR) {
+                throw unsupportedCharacter(ch);
+            }
+            septets += charType == GSM0338Charset.EXTENDED_CHARACTER ? 2 : 1;
+        }
+
+        return septets;
+    }
+
+    /**
+     * Packs the characters in the range into the buffer starting at its position. The first byte written
+     * starts with the fill bits set to 0.
+     *
+     * @param content message
+     * @param start index of the first character
+     * @param end index after the last character
+     * @param fillBits number of fill bits before the first septet
+     * @param out buffer the packed septets are written into
+     * @return the number of septets written, escape septets included
+     * @throws IllegalArgumentException when the range contains characters outside the GSM0338Charset or the
+     * escape character
+     * @throws java.nio.BufferOverflowException when the buffer is too small, the buffer is then partially written
+     */
+    public static int encode(CharSequence content, int start, int end, int fillBits, ByteBuffer out) {
+        int bits = fillBits;
+        int pending = 0;
+        int septets = 0;
+
+        for (int i = start; i < end; i++) {
+            char ch = content.charAt(i);
+            int code = GSM0338Charset.getCode(ch);
+            if (code < 0 || ch == GSM0338Charset.ESCAPE_CHAR) {
+                throw unsupportedCharacter(ch);
+            }
+
+            if (GSM0338Charset.getCharacterType(ch) == GSM0338Charset.EXTENDED_CHARACTER) {
+                pending |= GSM0338Charset.ESCAPE_CHAR << bits;
+                bits += 7;
+                septets++;
+                if (bits >= 8) {
+                    out.put((byte) pending);
+                    pending >>>= 8;
+                    bits -= 8;
+                }
+            }
+
+            pending |= code << bits;
+            bits += 7;
+            septets++;
+            if (bits >= 8) {
+                out.put((byte) pending);
+                pending >>>= 8;
+                bits -= 8;
+            }
+        }
+
+        if (bits > 0) {
+            out.put((byte) pending);
+        }
+
+        return septets;
+    }
+
+    /**
+     * Unpacks the septets from the buffer starting at its position into characters. An escape septet
+     * followed by a code without a character in the extended table is decoded as the base table character of
+     * the code, an escape septet ending the data as the escape character.
+     *
+     * @param in buffer holding the packed septets
+     * @param septets number of septets to unpack, escape septets included
+     * @param fillBits number of fill bits before the first septet
+     * @param out buffer the characters are written into
+     * @return the number of characters written
+     * @throws java.nio.BufferUnderflowException when the buffer holds less than the given septets
+     * @throws java.nio.BufferOverflowException when the characters don't fit in the out buffer
+     */
+    public static int decode(ByteBuffer in, int septets, int fillBits, CharBuffer out) {
+        int bits = 0;
+        int pending = 0;
+        int skipBits = fillBits;
+        boolean escape = false;
+        int written = 0;
+
+        for (int i = 0; i < septets; i++) {
+            while (bits < 7) {
+                int value = (in.get() & 0xFF) >>> skipBits;
+                pending |= value << bits;
+                bits += 8 - skipBits;
+                skipBits = 0;
+            }
+
+            int code = pending & 0x7F;
+            pending >>>= 7;
+            bits -= 7;
+
+            if (escape) {
+                int ch = GSM0338Charset.getExtendedCharacter(code);
+                out.put(ch < 0 ? GSM0338Charset.getBaseCharacter(code) : (char) ch);
+                written++;
+                escape = false;
+            } else if (code == GSM0338Charset.ESCAPE_CHAR) {
+                escape = true;
+            } else {
+                out.put(GSM0338Charset.getBaseCharacter(code));
+                written++;
+            }
+        }
+
+        if (escape) {
+            out.put(GSM0338Charset.ESCAPE_CHAR);
+            written++;
+        }
+
+        return written;
+    }
+
+    private static IllegalArgumentException unsupportedCharacter(char ch) {
+        return new IllegalArgumentException("Message contains '" + ch + "' which is not in GSM0338Charset");
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.charset;
+
+import java.util.Arrays;
+
+/**
+ * National language shift tables of 3GPP TS 23.038, which let messages in these languages be sent with
+ * the 7bit encoding instead of UCS-2.
+ *
+ * A locking shift table replaces the base table of {@link GSM0338Charset}, a single shift table replaces
+ * its extended table, each character of it being preceded by the escape character. Spanish only has a single shift
+ * table. The tables used by a message are announced by information elements in the User Data Header,
+ * which take room from the message text.
+ *
+ * Unused positions of the tables are marked with '\u0000', the escape position with the escape character.
+ *
+ * The tables are generated at build time from the mapping files in src/main/charset/national, the ordinal of
+ * each language being its identifier.
+ */
+public enum NationalLanguage {
+
+    DEFAULT(0, null, null),
+
+    TURKISH(1, NationalLanguageTables.TURKISH_LOCKING_SHIFT, NationalLanguageTables.TURKISH_SINGLE_SHIFT),
+
+    SPANISH(2, null, NationalLanguageTables.SPANISH_SINGLE_SHIFT),
+
+    PORTUGUESE(3, NationalLanguageTables.PORTUGUESE_LOCKING_SHIFT, NationalLanguageTables.PORTUGUESE_SINGLE_SHIFT),
+
+    BENGALI(4, NationalLanguageTables.BENGALI_LOCKING_SHIFT, NationalLanguageTables.BENGALI_SINGLE_SHIFT),
+
+    GUJARATI(5, NationalLanguageTables.GUJARATI_LOCKING_SHIFT, NationalLanguageTables.GUJARATI_SINGLE_SHIFT),
+
+    HINDI(6, NationalLanguageTables.HINDI_LOCKING_SHIFT, NationalLanguageTables.HINDI_SINGLE_SHIFT),
+
+    KANNADA(7, NationalLanguageTables.KANNADA_LOCKING_SHIFT, NationalLanguageTables.KANNADA_SINGLE_SHIFT),
+
+    MALAYALAM(8, NationalLanguageTables.MALAYALAM_LOCKING_SHIFT, NationalLanguageTables.MALAYALAM_SINGLE_SHIFT),
+
+    ORIYA(9, NationalLanguageTables.ORIYA_LOCKING_SHIFT, NationalLanguageTables.ORIYA_SINGLE_SHIFT),
+
+    PUNJABI(10, NationalLanguageTables.PUNJABI_LOCKING_SHIFT, NationalLanguageTables.PUNJABI_SINGLE_SHIFT),
+
+    TAMIL(11, NationalLanguageTables.TAMIL_LOCKING_SHIFT, NationalLanguageTables.TAMIL_SINGLE_SHIFT),
+
+    TELUGU(12, NationalLanguageTables.TELUGU_LOCKING_SHIFT, NationalLanguageTables.TELUGU_SINGLE_SHIFT),
+
+    URDU(13, NationalLanguageTables.URDU_LOCKING_SHIFT, NationalLanguageTables.URDU_SINGLE_SHIFT);
+
+    /**
+     * For each block of 256 characters the membership of its characters, null when no table has any of them:
+     * bit i of the lower 16 bits set when the character is in the locking shift table of the language with
+     * ordinal i, of the upper 16 bits when it's in its single shift table
+     */
+    private static final int[][] MEMBERSHIP = new int[256][];
+
+    private final int identifier;
+
+    private final char[] lockingShiftTable;
+
+    private final char[] singleShiftTable;
+
+    /**
+     * Sorted characters of the tables with their codes at the same index, for looking up a code
+     */
+    private final char[] lockingShiftCharacters;
+
+    private final byte[] lockingShiftCodes;
+
+    private final char[] singleShiftCharacters;
+
+    private final byte[] singleShiftCodes;
+
+    static {
+        for (NationalLanguage language : values()) {
+            for (int code = 0; code < 128; code++) {
+                int lockingShiftCharacter = language.getLockingShiftCharacter(code);
+                if (lockingShiftCharacter >= 0) {
+                    addMembership((char) lockingShiftCharacter, 1 << language.ordinal());
+                }
+
+                int singleShiftCharacter = language.getSingleShiftCharacter(code);
+                if (singleShiftCharacter >= 0) {
+                    addMembership((char) singleShiftCharacter, 1 << 16 + language.ordinal());
+                }
+            }
+        }
+    }
+
+    NationalLanguage(int identifier, String lockingShiftTable, String singleShiftTable) {
+        this.identifier = identifier;
+        this.lockingShiftTable = lockingShiftTable == null ? null : lockingShiftTable.toCharArray();
+        this.singleShiftTable = singleShiftTable == null ? null : singleShiftTable.toCharArray();
+
+        int[] lockingShiftEntries = getSortedEntries(this.lockingShiftTable);
+        lockingShiftCharacters = getCharacters(lockingShiftEntries);
+        lockingShiftCodes = getCodes(lockingShiftEntries);
+
+        int[] singleShiftEntries = getSortedEntries(this.singleShiftTable);
+        singleShiftCharacters = getCharacters(singleShiftEntries);
+        singleShiftCodes = getCodes(singleShiftEntries);
+    }
+
+    /**
+     * @return the national language identifier used in the shift information elements of the User Data Header
+     */
+    public int getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return false for the languages which only have a single shift table
+     */
+    public boolean hasLockingShiftTable() {
+        return this == DEFAULT || lockingShiftTable != null;
+    }
+
+    /**
+     * @param code code between 0 and 127
+     * @return the character of the code in the locking shift table, -1 if there's none
+     */
+    public int getLockingShiftCharacter(int code) {
+        if (this == DEFAULT) {
+            return GSM0338Charset.getBaseCharacter(code);
+        }
+        return lockingShiftTable == null || lockingShiftTable[code] == 0 ? -1 : lockingShiftTable[code];
+    }
+
+    /**
+     * @param code code between 0 and 127 following the escape character
+     * @return the character of the code in the single shift table, -1 if there's none
+     */
+    public int getSingleShiftCharacter(int code) {
+        if (this == DEFAULT) {
+            return GSM0338Charset.getExtendedCharacter(code);
+        }
+        return singleShiftTable[code] == 0 ? -1 : singleShiftTable[code];
+    }
+
+    /**
+     * @return the code of the character in the locking shift table, -1 if it's not in the table
+     */
+    public int getLockingShiftCode(char ch) {
+        if (this == DEFAULT) {
+            return GSM0338Charset.isBaseCharsetCharacter(ch) ? GSM0338Charset.getCode(ch) : -1;
+        }
+        int index = Arrays.binarySearch(lockingShiftCharacters, ch);
+        return index < 0 ? -1 : lockingShiftCodes[index];
+    }
+
+    /**
+     * @return the code of the character in the single shift table, which follows the escape character,
+     * -1 if it's not in the table
+     */
+    public int getSingleShiftCode(char ch) {
+        if (this == DEFAULT) {
+            return GSM0338Charset.isExtendedCharsetCharacter(ch) ? GSM0338Charset.getCode(ch) : -1;
+        }
+        int index = Arrays.binarySearch(singleShiftCharacters, ch);
+        return index < 0 ? -1 : singleShiftCodes[index];
+    }
+
+    public static NationalLanguage forIdentifier(int identifier) {
+        for (NationalLanguage language : values()) {
+            if (language.identifier == identifier) {
+                return language;
+            }
+        }
+        throw new IllegalArgumentException("Unknown national language identifier " + identifier);
+    }
+
+    /**
+     * Looks up in which tables the character is, in a single lookup for all the languages
+     *
+     * @param ch character
+     * @return bit i set when the character is in the locking shift table of the language with ordinal i
+     */
+    public static int getLockingShiftMembership(char ch) {
+        int[] block = MEMBERSHIP[ch >>> 8];
+        return block == null ? 0 : block[ch & 0xFF] & 0xFFFF;
+    }
+
+    /**
+     * @param ch character
+     * @return bit i set when the character is in the single shift table of the language with ordinal i
+     */
+    public static int getSingleShiftMembership(char ch) {
+        int[] block = MEMBERSHIP[ch >>> 8];
+        return block == null ? 0 : block[ch & 0xFF] >>> 16;
+    }
+
+    private static void addMembership(char ch, int bit) {
+        int[] block = MEMBERSHIP[ch >>> 8];
+        if (block == null) {
+            block = new int[256];
+            MEMBERSHIP[ch >>> 8] = block;
+        }
+        block[ch & 0xFF] |= bit;
+    }
+
+    /**
+     * @return the used positions of the table, the character in the upper bits and the code in the lower 8 bits,
+     * sorted by character, the lowest code first for a character that appears twice
+     */
+    private static int[] getSortedEntries(char[] table) {
+        if (table == null) {
+            return new int[0];
+        }
+
+        int[] entries = new int[table.length];
+        int count = 0;
+        for (int code = 0; code < table.length; code++) {
+            if (table[code] != 0) {
+                entries[count++] = table[code] << 8 | code;
+            }
+        }
+        entries = Arrays.copyOf(entries, count);
+        Arrays.sort(entries);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || entries[unique - 1] >>> 8 != entries[i] >>> 8) {
+                entries[unique++] = entries[i];
+            }
+        }
+        return Arrays.copyOf(entries, unique);
+    }
+
+    private static char[] getCharacters(int[] entries) {
+        char[] characters = new char[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            characters[i] = (char) (entries[i] >>> 8);
+        }
+        return characters;
+    }
+
+    private static byte[] getCodes(int[] entries) {
+        byte[] codes = new byte[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            codes[i] = (byte) entries[i];
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * Writes the characters of Unicode encoded sms parts as big-endian UTF-16 (UCS-2 extended with surrogate pairs,
+ * which handsets display as a single character as long as both halves are in the same part)
+ * and reads them back.
+ *
+ * The buffers are written and read from their current position, so both heap and direct buffers can be used,
+ * and nothing is allocated. The bytes are always big-endian, whatever the order of the buffer.
+ */
+public final class UCS2Codec {
+
+    private UCS2Codec() {
+    }
+
+    /**
+     * Writes the characters in the range into the buffer starting at its position
+     *
+     * @param content message
+     * @param start index of the first character
+     * @param end index after the last character
+     * @param out buffer the bytes are written into
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException when the buffer is too small, the buffer is then partially written
+     */
+    public static int encode(CharSequence content, int start, int end, ByteBuffer out) {
+        if (out.order() == ByteOrder.BIG_ENDIAN) {
+            for (int i = start; i < end; i++) {
+                out.putChar(content.charAt(i));
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                char ch = content.charAt(i);
+                out.put((byte) (ch >>> 8));
+                out.put((byte) ch);
+            }
+        }
+
+        return (end - start) * 2;
+    }
+
+    /**
+     * Reads the characters from the buffer starting at its position
+     *
+     * @param in buffer holding the big-endian bytes
+     * @param length number of characters to read
+     * @param out buffer the characters are written into
+     * @throws java.nio.BufferUnderflowException when the buffer holds less than the given characters
+     * @throws java.nio.BufferOverflowException when the characters don't fit in the out buffer
+     */
+    public static void decode(ByteBuffer in, int length, CharBuffer out) {
+        if (in.order() == ByteOrder.BIG_ENDIAN) {
+            for (int i = 0; i < length; i++) {
+                out.put(in.getChar());
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                int high = in.get() & 0xFF;
+                out.put((char) (high << 8 | in.get() & 0xFF));
+            }
+        }
+    }
+}
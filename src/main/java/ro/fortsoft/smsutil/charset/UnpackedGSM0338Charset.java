@@ -0,0 +1,258 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * GSM 03.38 as a {@link Charset}, unpacked: each septet takes a byte of its own, with the upper bit clear,
+ * as used by SMPP and most SMSC interfaces. For the septets packed 8 in 7 bytes see {@link GSM7BitCodec}.
+ *
+ * Extended charset characters are encoded as the escape byte followed by their code. When decoding, an escape
+ * followed by a code without a character in the extended table gives the base table character of the code,
+ * while bytes with the upper bit set and an escape ending the input are malformed.
+ * Characters outside the charset are unmappable, lone surrogates malformed. The escape character itself is
+ * unmappable too, its byte being read back as the escape of the next character.
+ *
+ * Registered as "X-GSM0338-UNPACKED" through {@link GSM0338CharsetProvider}.
+ */
+public class UnpackedGSM0338Charset extends Charset {
+
+    public static final String NAME = "X-GSM0338-UNPACKED";
+
+    public static final UnpackedGSM0338Charset INSTANCE = new UnpackedGSM0338Charset();
+
+    private UnpackedGSM0338Charset() {
+        super(NAME, new String[] {"GSM0338", "GSM_03.38", "X-GSM-DEFAULT"});
+    }
+
+    @Override
+    public boolean contains(Charset charset) {
+        return charset instanceof UnpackedGSM0338Charset;
+    }
+
+    @Override
+    public CharsetDecoder newDecoder() {
+        return new Decoder(this);
+    }
+
+    @Override
+    public CharsetEncoder newEncoder() {
+        return new Encoder(this);
+    }
+
+    private static class Encoder extends CharsetEncoder {
+
+        Encoder(Charset charset) {
+            super(charset, 1.1f, 2f);
+        }
+
+        @Override
+        public boolean canEncode(char ch) {
+            return ch != GSM0338Charset.ESCAPE_CHAR
+                    && GSM0338Charset.getCharacterType(ch) != GSM0338Charset.UNSUPPORTED_CHARACTER;
+        }
+
+        @Override
+        protected CoderResult encodeLoop(CharBuffer in, ByteBuffer out) {
+            if (in.hasArray() && out.hasArray()) {
+                return encodeArrayLoop(in, out);
+            }
+            return encodeBufferLoop(in, out);
+        }
+
+        private CoderResult encodeArrayLoop(CharBuffer in, ByteBuffer out) {
+            char[] chars = in.array();
+            int charPosition = in.arrayOffset() + in.position();
+            int charLimit = in.arrayOffset() + in.limit();
+            byte[] bytes = out.array();
+            int bytePosition = out.arrayOffset() + out.position();
+            int byteLimit = out.arrayOffset() + out.limit();
+
+            try {
+                while (charPosition < charLimit) {
+                    char ch = chars[charPosition];
+                    int code = GSM0338Charset.getCode(ch);
+
+                    if (code < 0 || ch == GSM0338Charset.ESCAPE_CHAR) {
+                        return unencodable(ch, charPosition + 1 < charLimit ? chars[charPosition + 1] : 0,
+                                charPosition + 1 < charLimit);
+                    }
+
+                    if (GSM0338Charset.getCharacterType(ch) == GSM0338Charset.EXTENDED_CHARACTER) {
+                        if (byteLimit - bytePosition < 2) {
+                            return CoderResult.OVERFLOW;
+                        }
+                        bytes[bytePosition++] = (byte) GSM0338Charset.ESCAPE_CHAR;
+                    } else if (bytePosition == byteLimit) {
+                        return CoderResult.OVERFLOW;
+                    }
+                    bytes[bytePosition++] = (byte) code;
+                    charPosition++;
+                }
+                return CoderResult.UNDERFLOW;
+            } finally {
+                in.position(charPosition - in.arrayOffset());
+                out.position(bytePosition - out.arrayOffset());
+            }
+        }
+
+        private CoderResult encodeBufferLoop(CharBuffer in, ByteBuffer out) {
+            int charPosition = in.position();
+            try {
+                while (charPosition < in.limit()) {
+                    char ch = in.get(charPosition);
+                    int code = GSM0338Charset.getCode(ch);
+
+                    if (code < 0 || ch == GSM0338Charset.ESCAPE_CHAR) {
+                        boolean hasNext = charPosition + 1 < in.limit();
+                        return unencodable(ch, hasNext ? in.get(charPosition + 1) : 0, hasNext);
+                    }
+
+                    if (GSM0338Charset.getCharacterType(ch) == GSM0338Charset.EXTENDED_CHARACTER) {
+                        if (out.remaining() < 2) {
+                            return CoderResult.OVERFLOW;
+                        }
+                        out.put((byte) GSM0338Charset.ESCAPE_CHAR);
+                    } else if (! out.hasRemaining()) {
+                        return CoderResult.OVERFLOW;
+                    }
+                    out.put((byte) code);
+                    charPosition++;
+                }
+                return CoderResult.UNDERFLOW;
+            } finally {
+                in.position(charPosition);
+            }
+        }
+
+        /**
+         * A surrogate pair is one unmappable character, a lone surrogate is malformed and a high surrogate
+         * ending the input waits for more
+         */
+        private static CoderResult unencodable(char ch, char next, boolean hasNext) {
+            if (Character.isHighSurrogate(ch)) {
+                if (! hasNext) {
+                    return CoderResult.UNDERFLOW;
+                }
+                return Character.isLowSurrogate(next) ? CoderResult.unmappableForLength(2)
+                        : CoderResult.malformedForLength(1);
+            }
+            if (Character.isLowSurrogate(ch)) {
+                return CoderResult.malformedForLength(1);
+            }
+            return CoderResult.unmappableForLength(1);
+        }
+    }
+
+    private static class Decoder extends CharsetDecoder {
+
+        Decoder(Charset charset) {
+            super(charset, 1f, 1f);
+        }
+
+        @Override
+        protected CoderResult decodeLoop(ByteBuffer in, CharBuffer out) {
+            if (in.hasArray() && out.hasArray()) {
+                return decodeArrayLoop(in, out);
+            }
+            return decodeBufferLoop(in, out);
+        }
+
+        private CoderResult decodeArrayLoop(ByteBuffer in, CharBuffer out) {
+            byte[] bytes = in.array();
+            int bytePosition = in.arrayOffset() + in.position();
+            int byteLimit = in.arrayOffset() + in.limit();
+            char[] chars = out.array();
+            int charPosition = out.arrayOffset() + out.position();
+            int charLimit = out.arrayOffset() + out.limit();
+
+            try {
+                while (bytePosition < byteLimit) {
+                    int code = bytes[bytePosition];
+                    int length = 1;
+                    if (code == GSM0338Charset.ESCAPE_CHAR) {
+                        if (bytePosition + 1 == byteLimit) {
+                            return CoderResult.UNDERFLOW;
+                        }
+                        code = bytes[bytePosition + 1];
+                        length = 2;
+                    }
+
+                    if (code < 0) {
+                        return CoderResult.malformedForLength(1);
+                    }
+                    if (charPosition == charLimit) {
+                        return CoderResult.OVERFLOW;
+                    }
+
+                    chars[charPosition++] = getCharacter(code, length == 2);
+                    bytePosition += length;
+                }
+                return CoderResult.UNDERFLOW;
+            } finally {
+                in.position(bytePosition - in.arrayOffset());
+                out.position(charPosition - out.arrayOffset());
+            }
+        }
+
+        private CoderResult decodeBufferLoop(ByteBuffer in, CharBuffer out) {
+            int bytePosition = in.position();
+            try {
+                while (bytePosition < in.limit()) {
+                    int code = in.get(bytePosition);
+                    int length = 1;
+                    if (code == GSM0338Charset.ESCAPE_CHAR) {
+                        if (bytePosition + 1 == in.limit()) {
+                            return CoderResult.UNDERFLOW;
+                        }
+                        code = in.get(bytePosition + 1);
+                        length = 2;
+                    }
+
+                    if (code < 0) {
+                        return CoderResult.malformedForLength(1);
+                    }
+                    if (! out.hasRemaining()) {
+                        return CoderResult.OVERFLOW;
+                    }
+
+                    out.put(getCharacter(code, length == 2));
+                    bytePosition += length;
+                }
+                return CoderResult.UNDERFLOW;
+            } finally {
+                in.position(bytePosition);
+            }
+        }
+
+        private static char getCharacter(int code, boolean escaped) {
+            if (escaped) {
+                int ch = GSM0338Charset.getExtendedCharacter(code);
+                if (ch >= 0) {
+                    return (char) ch;
+                }
+            }
+            return GSM0338Charset.getBaseCharacter(code);
+        }
+    }
+}
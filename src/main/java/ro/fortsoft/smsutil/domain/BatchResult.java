@@ -0,0 +1,42 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.domain;
+
+import java.util.List;
+
+/**
+ * Results of processing a batch of messages, in the order of the input messages, together with the totals
+ */
+public class BatchResult<T> {
+
+    private final List<T> results;
+
+    private final BatchStatistics statistics;
+
+    public BatchResult(List<T> results, BatchStatistics statistics) {
+        this.results = results;
+        this.statistics = statistics;
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    public BatchStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.domain;
+
+import ro.fortsoft.smsutil.Encoding;
+
+import java.util.Arrays;
+
+/**
+ * Aggregate totals over a batch of messages: the number of messages per encoding,
+ * the histogram of the number of parts and the total number of parts.
+ *
+ * It is not thread safe, each worker records into its own instance and the instances are merged at the end.
+ */
+public class BatchStatistics {
+
+    private final long[] messagesPerEncoding = new long[Encoding.values().length];
+
+    /**
+     * Number of messages indexed by their number of parts
+     */
+    private long[] partsHistogram = new long[16];
+
+    private long totalParts;
+
+    public void record(Encoding encoding, int numberOfParts) {
+        messagesPerEncoding[encoding.ordinal()]++;
+
+        if (numberOfParts >= partsHistogram.length) {
+            partsHistogram = Arrays.copyOf(partsHistogram, Math.max(numberOfParts + 1, partsHistogram.length * 2));
+        }
+        partsHistogram[numberOfParts]++;
+
+        totalParts += numberOfParts;
+    }
+
+    public void merge(BatchStatistics other) {
+        for (int i = 0; i < messagesPerEncoding.length; i++) {
+            messagesPerEncoding[i] += other.messagesPerEncoding[i];
+        }
+
+        if (other.partsHistogram.length > partsHistogram.length) {
+            partsHistogram = Arrays.copyOf(partsHistogram, other.partsHistogram.length);
+        }
+        for (int i = 0; i < other.partsHistogram.length; i++) {
+            partsHistogram[i] += other.partsHistogram[i];
+        }
+
+        totalParts += other.totalParts;
+    }
+
+    public long getNumberOfMessages() {
+        long messages = 0;
+        for (long count : messagesPerEncoding) {
+            messages += count;
+        }
+        return messages;
+    }
+
+    public long getNumberOfMessages(Encoding encoding) {
+        return messagesPerEncoding[encoding.ordinal()];
+    }
+
+    /**
+     * @param numberOfParts number of parts
+     * @return the number of messages that were split into the given number of parts
+     */
+    public long getNumberOfMessagesWithParts(int numberOfParts) {
+        return numberOfParts < partsHistogram.length ? partsHistogram[numberOfParts] : 0;
+    }
+
+    /**
+     * @return the highest number of parts of a message, the upper bound for {@link #getNumberOfMessagesWithParts(int)}
+     */
+    public int getMaxNumberOfParts() {
+        for (int i = partsHistogram.length - 1; i > 0; i--) {
+            if (partsHistogram[i] > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    public long getTotalParts() {
+        return totalParts;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.domain;
+
+import ro.fortsoft.smsutil.Encoding;
+
+/**
+ * A part ready to be sent: the user data with its User Data Header, the septets packed for
+ * {@link Encoding#GSM_7BIT}, big-endian UTF-16 for {@link Encoding#GSM_UNICODE}
+ */
+public class EncodedPart {
+
+    private final Encoding encoding;
+
+    private final int reference;
+
+    private final int partNumber;
+
+    private final int numberOfParts;
+
+    private final int userDataHeaderLength;
+
+    private final int userDataLength;
+
+    private final byte[] userData;
+
+    public EncodedPart(Encoding encoding, int reference, int partNumber, int numberOfParts,
+                       int userDataHeaderLength, int userDataLength, byte[] userData) {
+        this.encoding = encoding;
+        this.reference = reference;
+        this.partNumber = partNumber;
+        this.numberOfParts = numberOfParts;
+        this.userDataHeaderLength = userDataHeaderLength;
+        this.userDataLength = userDataLength;
+        this.userData = userData;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return the concatenation reference number, -1 for a message sent in a single part
+     */
+    public int getReference() {
+        return reference;
+    }
+
+    /**
+     * @return number of the part, starting from 1
+     */
+    public int getPartNumber() {
+        return partNumber;
+    }
+
+    public int getNumberOfParts() {
+        return numberOfParts;
+    }
+
+    /**
+     * @return whether the user data starts with a User Data Header, for the TP-UDHI flag
+     */
+    public boolean hasUserDataHeader() {
+        return userDataHeaderLength > 0;
+    }
+
+    /**
+     * @return bytes of the User Data Header at the start of the user data, including its length byte
+     */
+    public int getUserDataHeaderLength() {
+        return userDataHeaderLength;
+    }
+
+    /**
+     * @return the TP-UDL: septets for {@link Encoding#GSM_7BIT}, the header and its fill bits included,
+     * bytes for {@link Encoding#GSM_UNICODE}
+     */
+    public int getUserDataLength() {
+        return userDataLength;
+    }
+
+    public byte[] getUserData() {
+        return userData;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.domain;
+
+import ro.fortsoft.smsutil.Encoding;
+import ro.fortsoft.smsutil.SmsPartHandler;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+
+/**
+ * Compact form of the parts of a split message, for keeping many messages queued in memory.
+ *
+ * All the parts are stored in a single byte array: for {@link Encoding#GSM_7BIT} as one stream of packed septets,
+ * the extended charset characters taking their escape septet, for {@link Encoding#GSM_UNICODE} as big-endian UTF-16.
+ * Part i starts at offsets[i], in septets or in chars, and ends where part i + 1 starts. This takes 7 bits per
+ * character instead of the 16 bits, the String and the char[] headers of every part of {@link SmsParts}.
+ *
+ * The parts are read back through CharSequence views holding the same characters as the parts of SmsParts,
+ * the escape characters included, which are decoded from the bytes when first read. Like on a handset,
+ * an escape character of the message which is not followed by an extended charset character is read back as
+ * the escape of the character following it when that character's code has an extended character.
+ */
+public class PackedSmsParts {
+
+    private final Encoding encoding;
+
+    private final byte[] data;
+
+    private final int[] offsets;
+
+    private PackedSmsParts(Encoding encoding, byte[] data, int[] offsets) {
+        this.encoding = encoding;
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Splits the message straight into the packed form, without building the parts
+     *
+     * @param message message
+     * @return the packed parts
+     */
+    public static PackedSmsParts pack(final CharSequence message) {
+        final SmsAnalysis analysis = new SmsAnalysis();
+        final Packer[] packer = new Packer[1];
+
+        SmsUtils.splitSms(message, analysis, new SmsPartHandler() {
+            @Override
+            public void onPart(Encoding encoding, int partIndex, int numberOfParts, int start, int end) {
+                if (packer[0] == null) {
+                    packer[0] = new Packer(encoding, numberOfParts, analysis.getLength());
+                }
+                packer[0].startPart(partIndex);
+                for (int i = start; i < end; i++) {
+                    char ch = message.charAt(i);
+                    if (encoding == Encoding.GSM_7BIT && GSM0338Charset.isExtendedCharsetCharacter(ch)) {
+                        packer[0].add(GSM0338Charset.ESCAPE_CHAR);
+                    }
+                    packer[0].add(ch);
+                }
+            }
+        });
+
+        return packer[0].toPackedSmsParts();
+    }
+
+    /**
+     * @param smsParts parts, for {@link Encoding#GSM_7BIT} with their escape characters
+     * @return the packed parts
+     * @throws IllegalArgumentException when a {@link Encoding#GSM_7BIT} part has characters outside the charset
+     */
+    public static PackedSmsParts pack(SmsParts smsParts) {
+        String[] parts = smsParts.getParts();
+        int length = 0;
+        for (String part : parts) {
+            length += part.length();
+        }
+
+        Packer packer = new Packer(smsParts.getEncoding(), parts.length, length);
+        for (int i = 0; i < parts.length; i++) {
+            packer.startPart(i);
+            String part = parts[i];
+            for (int j = 0; j < part.length(); j++) {
+                packer.add(part.charAt(j));
+            }
+        }
+        return packer.toPackedSmsParts();
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public int getNumberOfParts() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param index index of the part, starting from 0
+     * @return a view of the part, decoding it from the packed bytes
+     */
+    public CharSequence getPart(int index) {
+        if (index < 0 || index >= getNumberOfParts()) {
+            throw new IndexOutOfBoundsException("Part " + index + " of " + getNumberOfParts());
+        }
+        return encoding == Encoding.GSM_7BIT ? new SeptetPart(offsets[index], offsets[index + 1])
+                : new Ucs2Part(offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * @return number of bytes holding the parts
+     */
+    public int getPackedLength() {
+        return data.length;
+    }
+
+    public SmsParts toSmsParts() {
+        String[] parts = new String[getNumberOfParts()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = getPart(i).toString();
+        }
+        return new SmsParts(encoding, parts);
+    }
+
+    private int getSeptet(int index) {
+        int bit = index * 7;
+        int shift = bit & 7;
+        int value = (data[bit >>> 3] & 0xFF) >>> shift;
+        if (shift > 1) {
+            value |= (data[(bit >>> 3) + 1] & 0xFF) << (8 - shift);
+        }
+        return value & 0x7F;
+    }
+
+    /**
+     * Writes the characters of the parts one after the other
+     */
+    private static final class Packer {
+
+        private final Encoding encoding;
+
+        private final byte[] data;
+
+        private final int[] offsets;
+
+        private int length;
+
+        private Packer(Encoding encoding, int numberOfParts, int length) {
+            this.encoding = encoding;
+            this.data = new byte[encoding == Encoding.GSM_7BIT ? (length * 7 + 7) / 8 : length * 2];
+            this.offsets = new int[numberOfParts + 1];
+        }
+
+        private void startPart(int partIndex) {
+            offsets[partIndex] = length;
+        }
+
+        private void add(char ch) {
+            if (encoding == Encoding.GSM_UNICODE) {
+                data[length * 2] = (byte) (ch >>> 8);
+                data[length * 2 + 1] = (byte) ch;
+                length++;
+                return;
+            }
+
+            int code = GSM0338Charset.getCode(ch);
+            if (code < 0) {
+                throw new IllegalArgumentException("Part contains '" + ch + "' which is not in GSM0338Charset");
+            }
+
+            int bit = length * 7;
+            int shift = bit & 7;
+            data[bit >>> 3] |= code << shift;
+            if (shift > 1) {
+                data[(bit >>> 3) + 1] |= code >>> (8 - shift);
+            }
+            length++;
+        }
+
+        private PackedSmsParts toPackedSmsParts() {
+            offsets[offsets.length - 1] = length;
+            return new PackedSmsParts(encoding, data, offsets);
+        }
+    }
+
+    /**
+     * Septets of a 7bit part, decoded the first time a character is read, since whether a septet following
+     * the escape septet is an extended character depends on the septets before it
+     */
+    private final class SeptetPart implements CharSequence {
+
+        private final int start;
+
+        private final int end;
+
+        private String decoded;
+
+        private SeptetPart(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            if (decoded == null) {
+                char[] chars = new char[end - start];
+                boolean escape = false;
+                for (int i = start; i < end; i++) {
+                    int code = getSeptet(i);
+                    if (escape) {
+                        int ch = GSM0338Charset.getExtendedCharacter(code);
+                        chars[i - start] = ch < 0 ? GSM0338Charset.getBaseCharacter(code) : (char) ch;
+                        escape = false;
+                    } else {
+                        chars[i - start] = GSM0338Charset.getBaseCharacter(code);
+                        escape = code == GSM0338Charset.ESCAPE_CHAR;
+                    }
+                }
+                decoded = new String(chars);
+            }
+            return decoded;
+        }
+    }
+
+    private final class Ucs2Part implements CharSequence {
+
+        private final int start;
+
+        private final int end;
+
+        private Ucs2Part(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + (end - start));
+            }
+            int i = (start + index) * 2;
+            return (char) ((data[i] & 0xFF) << 8 | data[i + 1] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end) {
+                throw new IndexOutOfBoundsException("Range " + start + ", " + end + " of " + length());
+            }
+            return new Ucs2Part(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = charAt(i);
+            }
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.domain;
+
+import ro.fortsoft.smsutil.Encoding;
+import ro.fortsoft.smsutil.charset.NationalLanguage;
+
+/**
+ * Result of analysing a message: the encoding, the encoded length and the number of parts.
+ * Unlike {@link Parts} it is mutable, so a single instance can be reused across messages.
+ */
+public class SmsAnalysis {
+
+    private Encoding encoding;
+
+    /**
+     * Septets for {@link Encoding#GSM_7BIT} (extended charset characters count as 2),
+     * UTF-16 chars for {@link Encoding#GSM_UNICODE}
+     */
+    private int length;
+
+    private int numberOfParts;
+
+    /**
+     * Set when the analysis was bounded by a maximum number of parts and the message takes more,
+     * the number of parts then being the maximum + 1 and the length only the length analysed before stopping
+     */
+    private boolean overflow;
+
+    /**
+     * National language tables the {@link Encoding#GSM_7BIT} length was counted with,
+     * {@link NationalLanguage#DEFAULT} for the tables of the GSM0338Charset
+     */
+    private NationalLanguage lockingShiftTable = NationalLanguage.DEFAULT;
+
+    private NationalLanguage singleShiftTable = NationalLanguage.DEFAULT;
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void setLength(int length) {
+        this.length = length;
+    }
+
+    public int getNumberOfParts() {
+        return numberOfParts;
+    }
+
+    public void setNumberOfParts(int numberOfParts) {
+        this.numberOfParts = numberOfParts;
+    }
+
+    public boolean isOverflow() {
+        return overflow;
+    }
+
+    public void setOverflow(boolean overflow) {
+        this.overflow = overflow;
+    }
+
+    public NationalLanguage getLockingShiftTable() {
+        return lockingShiftTable;
+    }
+
+    public NationalLanguage getSingleShiftTable() {
+        return singleShiftTable;
+    }
+
+    public void setShiftTables(NationalLanguage lockingShiftTable, NationalLanguage singleShiftTable) {
+        this.lockingShiftTable = lockingShiftTable;
+        this.singleShiftTable = singleShiftTable;
+    }
+
+    public Parts toParts() {
+        return new Parts(encoding, numberOfParts);
+    }
+}
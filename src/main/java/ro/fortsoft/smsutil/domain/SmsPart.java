@@ -0,0 +1,91 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.domain;
+
+import ro.fortsoft.smsutil.Encoding;
+
+/**
+ * A part of a split message, as a range of the message. For {@link Encoding#GSM_7BIT} the range holds
+ * the unescaped characters, the escape characters for the extended charset characters still need to be added
+ * when encoding the part.
+ */
+public class SmsPart {
+
+    private final CharSequence message;
+
+    private final Encoding encoding;
+
+    private final int partIndex;
+
+    private final int numberOfParts;
+
+    private final int start;
+
+    private final int end;
+
+    public SmsPart(CharSequence message, Encoding encoding, int partIndex, int numberOfParts, int start, int end) {
+        this.message = message;
+        this.encoding = encoding;
+        this.partIndex = partIndex;
+        this.numberOfParts = numberOfParts;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return the whole message the part belongs to
+     */
+    public CharSequence getMessage() {
+        return message;
+    }
+
+    /**
+     * @return encoding of the whole message
+     */
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return index of the part, starting from 0
+     */
+    public int getPartIndex() {
+        return partIndex;
+    }
+
+    public int getNumberOfParts() {
+        return numberOfParts;
+    }
+
+    /**
+     * @return index in the message of the first character of the part
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return index in the message after the last character of the part
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    public CharSequence getContent() {
+        return message.subSequence(start, end);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.domain;
+
+import ro.fortsoft.smsutil.Encoding;
+
+/**
+ * Result of transliterating a message: the message to be sent, whether the replacements were kept,
+ * and the analysis of the message with and without them
+ */
+public class Transliteration {
+
+    private final String message;
+
+    private final boolean applied;
+
+    private final int replacedCharacters;
+
+    private final SmsAnalysis originalAnalysis;
+
+    private final SmsAnalysis analysis;
+
+    public Transliteration(String message, boolean applied, int replacedCharacters,
+                           SmsAnalysis originalAnalysis, SmsAnalysis analysis) {
+        this.message = message;
+        this.applied = applied;
+        this.replacedCharacters = replacedCharacters;
+        this.originalAnalysis = originalAnalysis;
+        this.analysis = analysis;
+    }
+
+    /**
+     * @return the transliterated message when the replacements were kept, the original message otherwise
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /**
+     * @return number of characters of the original message which have a replacement in the table
+     */
+    public int getReplacedCharacters() {
+        return replacedCharacters;
+    }
+
+    public SmsAnalysis getOriginalAnalysis() {
+        return originalAnalysis;
+    }
+
+    /**
+     * @return analysis of the transliterated message, whether or not the replacements were kept
+     */
+    public SmsAnalysis getAnalysis() {
+        return analysis;
+    }
+
+    /**
+     * @return the encoding of the message to be sent
+     */
+    public Encoding getEncoding() {
+        return applied ? analysis.getEncoding() : originalAnalysis.getEncoding();
+    }
+
+    /**
+     * @return parts saved by sending the transliterated message, 0 when the replacements were not kept
+     */
+    public int getSavedParts() {
+        return applied ? originalAnalysis.getNumberOfParts() - analysis.getNumberOfParts() : 0;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.metrics;
+
+/**
+ * Holds the recorder the library operations report into. No recorder is set by default, the operations then
+ * only read the recorder field and don't measure anything.
+ */
+public final class SmsMetrics {
+
+    private static volatile SmsMetricsRecorder recorder;
+
+    private SmsMetrics() {
+    }
+
+    /**
+     * @return the recorder, null when the instrumentation is disabled
+     */
+    public static SmsMetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * @param recorder recorder the operations report into, null to disable the instrumentation
+     */
+    public static void setRecorder(SmsMetricsRecorder recorder) {
+        SmsMetrics.recorder = recorder;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.metrics;
+
+import ro.fortsoft.smsutil.Encoding;
+
+/**
+ * Receives the measurements of the {@link ro.fortsoft.smsutil.SmsUtils} operations, implemented to bridge them
+ * to a metrics system. The methods are called on the threads doing the operations, so they must be thread safe
+ * and cheap.
+ *
+ * @see SmsMetrics#setRecorder(SmsMetricsRecorder)
+ */
+public interface SmsMetricsRecorder {
+
+    /**
+     * A message was analysed: its encoding, length and number of parts determined
+     *
+     * @param encoding encoding of the message
+     * @param numberOfParts number of parts of the message
+     * @param nanos duration of the analysis
+     */
+    void recordAnalysis(Encoding encoding, int numberOfParts, long nanos);
+
+    /**
+     * A message was split into parts, including its analysis
+     *
+     * @param encoding encoding of the message
+     * @param numberOfParts number of parts of the message
+     * @param nanos duration of the split
+     */
+    void recordSplit(Encoding encoding, int numberOfParts, long nanos);
+
+    /**
+     * Parts of a split message were ended early because the escape of an extended charset character
+     * would have been the last septet of the part
+     *
+     * @param count number of such parts in the message
+     */
+    void recordEscapeAdjustments(int count);
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil.metrics;
+
+import ro.fortsoft.smsutil.Encoding;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Default {@link SmsMetricsRecorder}, counting the messages per encoding, the messages per number of parts,
+ * the escape adjustments and the durations in histograms with power of 2 buckets.
+ *
+ * The counters are striped: each thread adds to the stripe picked by its id, the stripes being summed when read.
+ * Recording takes a few atomic increments on counters that other threads rarely touch and allocates nothing.
+ */
+public class StripedSmsMetricsRecorder implements SmsMetricsRecorder {
+
+    /**
+     * Messages with this number of parts or more share the last bucket of the parts histogram
+     */
+    public static final int MAX_PARTS_BUCKET = 16;
+
+    /**
+     * Bucket i of the duration histograms counts the durations between 2^(i-1) and 2^i - 1 nanoseconds
+     */
+    public static final int DURATION_BUCKETS = 64;
+
+    private static final int ANALYSIS = 0;
+
+    private static final int SPLIT = 1;
+
+    private static final int ENCODINGS = Encoding.values().length;
+
+    private static final int MESSAGES_SLOT = 0;
+
+    private static final int PARTS_SLOT = MESSAGES_SLOT + 2 * ENCODINGS;
+
+    private static final int ESCAPE_ADJUSTMENTS_SLOT = PARTS_SLOT + MAX_PARTS_BUCKET + 1;
+
+    private static final int DURATIONS_SLOT = ESCAPE_ADJUSTMENTS_SLOT + 1;
+
+    /**
+     * Counters of a stripe, rounded up to whole cache lines of 8 longs so stripes don't share a line
+     */
+    private static final int STRIPE_SIZE = (DURATIONS_SLOT + 2 * DURATION_BUCKETS + 7) / 8 * 8;
+
+    private final AtomicLongArray counters;
+
+    private final int mask;
+
+    public StripedSmsMetricsRecorder() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param concurrency expected number of threads recording at the same time, rounded up to a power of 2 stripes
+     */
+    public StripedSmsMetricsRecorder(int concurrency) {
+        int stripes = Integer.highestOneBit(Math.max(1, Math.min(concurrency, 1 << 10)) * 2 - 1);
+        this.mask = stripes - 1;
+        this.counters = new AtomicLongArray(stripes * STRIPE_SIZE);
+    }
+
+    @Override
+    public void recordAnalysis(Encoding encoding, int numberOfParts, long nanos) {
+        record(ANALYSIS, encoding, numberOfParts, nanos);
+    }
+
+    @Override
+    public void recordSplit(Encoding encoding, int numberOfParts, long nanos) {
+        record(SPLIT, encoding, numberOfParts, nanos);
+    }
+
+    @Override
+    public void recordEscapeAdjustments(int count) {
+        counters.addAndGet(getStripe() + ESCAPE_ADJUSTMENTS_SLOT, count);
+    }
+
+    public long getAnalyzedMessages(Encoding encoding) {
+        return sum(MESSAGES_SLOT + ANALYSIS * ENCODINGS + encoding.ordinal());
+    }
+
+    public long getSplitMessages(Encoding encoding) {
+        return sum(MESSAGES_SLOT + SPLIT * ENCODINGS + encoding.ordinal());
+    }
+
+    /**
+     * @return number of analysed or split messages indexed by their number of parts, those with
+     * {@link #MAX_PARTS_BUCKET} parts or more in the last bucket
+     */
+    public long[] getPartsHistogram() {
+        long[] histogram = new long[MAX_PARTS_BUCKET + 1];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = sum(PARTS_SLOT + i);
+        }
+        return histogram;
+    }
+
+    public long getEscapeAdjustments() {
+        return sum(ESCAPE_ADJUSTMENTS_SLOT);
+    }
+
+    /**
+     * @return the histogram of the analysis durations, see {@link #DURATION_BUCKETS}
+     */
+    public long[] getAnalysisDurations() {
+        return getDurations(ANALYSIS);
+    }
+
+    /**
+     * @return the histogram of the split durations, see {@link #DURATION_BUCKETS}
+     */
+    public long[] getSplitDurations() {
+        return getDurations(SPLIT);
+    }
+
+    /**
+     * @return the index of the bucket of the duration histograms counting the duration
+     */
+    public static int getDurationBucket(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(nanos), DURATION_BUCKETS - 1);
+    }
+
+    private void record(int operation, Encoding encoding, int numberOfParts, long nanos) {
+        int stripe = getStripe();
+        counters.incrementAndGet(stripe + MESSAGES_SLOT + operation * ENCODINGS + encoding.ordinal());
+        counters.incrementAndGet(stripe + PARTS_SLOT + Math.min(numberOfParts, MAX_PARTS_BUCKET));
+        counters.incrementAndGet(stripe + DURATIONS_SLOT + operation * DURATION_BUCKETS + getDurationBucket(nanos));
+    }
+
+    private long[] getDurations(int operation) {
+        long[] histogram = new long[DURATION_BUCKETS];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = sum(DURATIONS_SLOT + operation * DURATION_BUCKETS + i);
+        }
+        return histogram;
+    }
+
+    private int getStripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ id >>> 32) * 0x9E3779B9;
+        return (hash >>> 16 & mask) * STRIPE_SIZE;
+    }
+
+    private long sum(int slot) {
+        long sum = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            sum += counters.get(stripe * STRIPE_SIZE + slot);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright [2016] the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ro.fortsoft.smsutil;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Java 9 version of the scanner, packed in <i>META-INF/versions/9</i> of the multi-release jar.
+ *
+ * Whole blocks are tested at once as a long (SWAR): 8 bytes read with a single load through a byte array view,
+ * or 4 chars of 16 bits. A lane is in the range [lo, hi) when setting its top bit and subtracting lo keeps the top
+ * bit set while subtracting hi clears it; with the top bit set the subtraction never borrows from the next lane.
+ * The block holding the first other character is finished one character at a time.
+ */
+final class BasicCharsetScanner {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    private static final long BYTE_LANES = 0x0101010101010101L;
+
+    private static final long BYTE_TOP_BITS = 0x8080808080808080L;
+
+    private static final long CHAR_LANES = 0x0001000100010001L;
+
+    private static final long CHAR_TOP_BITS = 0x8000800080008000L;
+
+    /**
+     * Bits of a char lane which are all clear when the char is ASCII
+     */
+    private static final long CHAR_NON_ASCII_BITS = 0xFF80FF80FF80FF80L;
+
+    private BasicCharsetScanner() {
+    }
+
+    static int getBasicLength(CharSequence content, int start, int end) {
+        int i = start;
+        for (; i <= end - 4; i += 4) {
+            long block = content.charAt(i) | (long) content.charAt(i + 1) << 16
+                    | (long) content.charAt(i + 2) << 32 | (long) content.charAt(i + 3) << 48;
+            if ((block & CHAR_NON_ASCII_BITS) != 0 || !isBasic(block | CHAR_TOP_BITS, CHAR_LANES, CHAR_TOP_BITS)) {
+                break;
+            }
+        }
+        while (i < end && isBasic(content.charAt(i))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    static int getBasicLength(byte[] array, int start, int end) {
+        int i = start;
+        for (; i <= end - 8; i += 8) {
+            if (!isBasicBytes((long) LONGS.get(array, i))) {
+                break;
+            }
+        }
+        while (i < end && isBasic(array[i])) {
+            i++;
+        }
+        return i - start;
+    }
+
+    static int getBasicLength(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        for (; i <= end - 8; i += 8) {
+            if (!isBasicBytes(buffer.getLong(i))) {
+                break;
+            }
+        }
+        while (i < end && isBasic(buffer.get(i))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    static boolean isBasic(int ch) {
+        return ch >= ' ' && ch <= 'Z' || ch >= 'a' && ch <= 'z';
+    }
+
+    private static boolean isBasicBytes(long block) {
+        return (block & BYTE_TOP_BITS) == 0 && isBasic(block | BYTE_TOP_BITS, BYTE_LANES, BYTE_TOP_BITS);
+    }
+
+    /**
+     * @param block the lanes with their top bit set
+     * @return whether every lane is in [' ', 'Z'] or ['a', 'z']
+     */
+    private static boolean isBasic(long block, long lanes, long topBits) {
+        long upperCase = (block - ' ' * lanes) & ~(block - ('Z' + 1) * lanes);
+        long lowerCase = (block - 'a' * lanes) & ~(block - ('z' + 1) * lanes);
+        return ((upperCase | lowerCase) & topBits) == topBits;
+    }
+}
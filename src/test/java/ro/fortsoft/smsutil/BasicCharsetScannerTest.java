@@ -0,0 +1,104 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class BasicCharsetScannerTest {
+
+    @Test
+    public void basicCharactersAreSingleSeptets() {
+        for (char ch = 0; ch < 128; ch++) {
+            boolean basic = ch >= 0x20 && ch <= 0x5A || ch >= 0x61 && ch <= 0x7A;
+            assertTrue("Char " + (int) ch, BasicCharsetScanner.isBasic(ch) == basic);
+            if (basic) {
+                assertTrue("Base charset " + ch, GSM0338Charset.getCharacterType(ch) == GSM0338Charset.BASE_CHARACTER);
+            }
+        }
+    }
+
+    @Test
+    public void runEndsAtFirstOtherCharacter() {
+        // ends of the ranges, the extended and unsupported characters next to them and a non ASCII char with
+        // an ASCII low byte
+        String others = "\u001f\n\r_[`{\u007f\u0080é€聁Ж";
+        Random random = new Random(21);
+        for (int i = 0; i < 20000; i++) {
+            int length = random.nextInt(40);
+            char[] chars = new char[length];
+            for (int j = 0; j < length; j++) {
+                chars[j] = random.nextInt(12) == 0 ? others.charAt(random.nextInt(others.length()))
+                        : (char) (random.nextBoolean() ? ' ' + random.nextInt('Z' - ' ' + 1) : 'a' + random.nextInt(26));
+            }
+            String message = new String(chars);
+            int start = length == 0 ? 0 : random.nextInt(length);
+            int end = start + random.nextInt(length - start + 1);
+
+            int expected = 0;
+            while (start + expected < end && isBasic(message.charAt(start + expected))) {
+                expected++;
+            }
+
+            assertTrue("Chars " + message, BasicCharsetScanner.getBasicLength(message, start, end) == expected);
+
+            byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = (byte) message.charAt(j);
+            }
+            if (!isAsciiLowByteOnly(message, start, end, expected)) {
+                continue;
+            }
+            assertTrue("Bytes " + message, BasicCharsetScanner.getBasicLength(bytes, start, end) == expected);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(length);
+            direct.put(bytes);
+            ByteBuffer littleEndian = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            assertTrue("Direct " + message, BasicCharsetScanner.getBasicLength(direct, start, end) == expected);
+            assertTrue("Little endian " + message,
+                    BasicCharsetScanner.getBasicLength(littleEndian, start, end) == expected);
+        }
+    }
+
+    @Test
+    public void analysisSkippingRunsIsTheSame() {
+        Random random = new Random(6);
+        String pool = "abcXYZ 09.,@_\n{€é";
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int j = random.nextInt(700); j > 0; j--) {
+                message.append(random.nextInt(4) == 0 ? pool.charAt(random.nextInt(pool.length())) : 'a');
+            }
+
+            SmsParts expected = SmsUtils.splitSms(message.toString());
+            SmsAnalysis analysis = SmsUtils.analyze(message, new SmsAnalysis());
+            assertTrue("Parts " + message, analysis.getNumberOfParts() == expected.getParts().length);
+            byte[] utf8 = message.toString().getBytes(Charset.forName("UTF-8"));
+            SmsAnalysis utf8Analysis = SmsUtils.analyze(utf8, 0, utf8.length, new SmsAnalysis());
+            assertTrue("UTF-8 " + message, utf8Analysis.getNumberOfParts() == analysis.getNumberOfParts()
+                    && utf8Analysis.getLength() == analysis.getLength());
+            for (int maxParts = 1; maxParts < 6; maxParts++) {
+                SmsAnalysis limited = SmsUtils.analyze(message, maxParts, new SmsAnalysis());
+                assertTrue("Overflow " + message, limited.isOverflow() == expected.getParts().length > maxParts);
+            }
+        }
+    }
+
+    private static boolean isBasic(char ch) {
+        return ch >= 0x20 && ch <= 0x5A || ch >= 0x61 && ch <= 0x7A;
+    }
+
+    /**
+     * A char above 0xFF in the run end would be seen as its low byte
+     */
+    private static boolean isAsciiLowByteOnly(String message, int start, int end, int expected) {
+        return start + expected == end || message.charAt(start + expected) < 0x100;
+    }
+}
@@ -0,0 +1,138 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.charset.GSM7BitCodec;
+import ro.fortsoft.smsutil.domain.EncodedPart;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class ConcatenatedSmsBuilderTest {
+
+    @Test
+    public void eightBitReferenceHeader() {
+        ConcatenatedSmsBuilder builder = new ConcatenatedSmsBuilder(new ConcatenationReferenceAllocator(),
+                ReferenceSize.EIGHT_BIT);
+        EncodedPart[] parts = builder.build("40700000000", repeat('a', 161));
+
+        assertTrue("Parts", parts.length == 2);
+        byte[] userData = parts[0].getUserData();
+        assertTrue("Header", userData[0] == 5 && userData[1] == 0 && userData[2] == 3
+                && userData[3] == (byte) parts[0].getReference() && userData[4] == 2 && userData[5] == 1);
+        assertTrue("Full part", userData.length == 140 && parts[0].getUserDataLength() == 160);
+        assertTrue("Same reference", parts[1].getReference() == parts[0].getReference());
+        assertTrue("Second part", parts[1].getUserData()[5] == 2 && parts[1].getUserDataLength() == 7 + 8);
+
+        CharBuffer decoded = CharBuffer.allocate(160);
+        GSM7BitCodec.decode(ByteBuffer.wrap(userData, 6, 134), 153, GSM7BitCodec.getFillBits(6), decoded);
+        assertTrue("Septets after the fill bit", decoded.flip().toString().equals(repeat('a', 153)));
+    }
+
+    @Test
+    public void sixteenBitReferenceLeavesLessRoom() {
+        ConcatenatedSmsBuilder builder = new ConcatenatedSmsBuilder(new ConcatenationReferenceAllocator(),
+                ReferenceSize.SIXTEEN_BIT);
+
+        EncodedPart[] parts = builder.build("40700000000", repeat('a', 305));
+        assertTrue("Parts of 152 septets", parts.length == 3);
+        byte[] userData = parts[0].getUserData();
+        int reference = parts[0].getReference();
+        assertTrue("Header", userData[0] == 6 && userData[1] == 8 && userData[2] == 4
+                && userData[3] == (byte) (reference >>> 8) && userData[4] == (byte) reference
+                && userData[5] == 3 && userData[6] == 1);
+        assertTrue("Full part", userData.length == 140 && parts[0].getUserDataLength() == 160);
+
+        CharBuffer decoded = CharBuffer.allocate(160);
+        GSM7BitCodec.decode(ByteBuffer.wrap(userData, 7, 133), 152, GSM7BitCodec.getFillBits(7), decoded);
+        assertTrue("No fill bits", decoded.flip().toString().equals(repeat('a', 152)));
+
+        parts = builder.build("40700000000", repeat('Ж', 134));
+        assertTrue("Parts of 66 chars", parts.length == 3);
+        assertTrue("Unicode part", parts[0].getUserData().length == 7 + 132 && parts[0].getUserDataLength() == 139);
+        assertTrue("Last part", parts[2].getUserDataLength() == 7 + 4);
+    }
+
+    @Test
+    public void singlePartHasNoHeader() {
+        ConcatenatedSmsBuilder builder = new ConcatenatedSmsBuilder(new ConcatenationReferenceAllocator(),
+                ReferenceSize.SIXTEEN_BIT);
+        EncodedPart[] parts = builder.build("40700000000", repeat('a', 160));
+
+        assertTrue("Single part", parts.length == 1 && !parts[0].hasUserDataHeader());
+        assertTrue("No reference", parts[0].getReference() == -1);
+        assertTrue("Packed", parts[0].getUserData().length == 140 && parts[0].getUserDataLength() == 160);
+    }
+
+    @Test
+    public void splitPartsGiveTheSameUserData() {
+        ConcatenatedSmsBuilder builder = new ConcatenatedSmsBuilder(new ConcatenationReferenceAllocator(),
+                ReferenceSize.SIXTEEN_BIT);
+        String message = repeat('a', 151) + "€{" + repeat('b', 200);
+
+        EncodedPart[] fromMessage = builder.build("40700000000", message);
+        EncodedPart[] fromParts = builder.build("40700000000", SmsUtils.splitSms(message));
+        assertTrue("Parts", fromMessage.length == fromParts.length);
+        for (int i = 0; i < fromMessage.length; i++) {
+            byte[] expected = fromMessage[i].getUserData();
+            byte[] userData = fromParts[i].getUserData();
+            assertTrue("Part " + i, Arrays.equals(Arrays.copyOfRange(expected, 5, expected.length),
+                    Arrays.copyOfRange(userData, 5, userData.length)));
+        }
+        assertTrue("Escape doesn't end the part", fromMessage[0].getUserDataLength() == 8 + 151);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void escapeCharacterIsRejected() {
+        new ConcatenatedSmsBuilder(new ConcatenationReferenceAllocator(), ReferenceSize.EIGHT_BIT)
+                .build("40700000000", "Price\u001b€");
+    }
+
+    @Test
+    public void referencesAreNotRepeatedAcrossThreads() throws Exception {
+        final ConcatenationReferenceAllocator allocator = new ConcatenationReferenceAllocator(1);
+        int first = allocator.nextReference("40700000000", ReferenceSize.EIGHT_BIT);
+        assertTrue("Consecutive", allocator.nextReference("40700000000", ReferenceSize.EIGHT_BIT)
+                == ((first + 1) & 0xFF));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<int[]>> results = new ArrayList<Future<int[]>>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    int[] references = new int[5000];
+                    for (int i = 0; i < references.length; i++) {
+                        references[i] = allocator.nextReference("40700000000", ReferenceSize.SIXTEEN_BIT);
+                    }
+                    return references;
+                }
+            }));
+        }
+
+        boolean[] seen = new boolean[0x10000];
+        for (Future<int[]> result : results) {
+            for (int reference : result.get()) {
+                assertTrue("Reference " + reference + " repeated", !seen[reference]);
+                seen[reference] = true;
+            }
+        }
+        executor.shutdown();
+        assertTrue("Executor stopped", executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static String repeat(char ch, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, ch);
+        return new String(chars);
+    }
+}
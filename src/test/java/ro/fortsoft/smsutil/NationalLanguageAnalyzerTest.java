@@ -0,0 +1,199 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
+import ro.fortsoft.smsutil.charset.NationalLanguage;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+public class NationalLanguageAnalyzerTest {
+
+    @Test
+    public void turkishTextStaysIn7Bit() {
+        StringBuilder message = new StringBuilder();
+        while (message.length() < 150) {
+            message.append("Günaydın, şişeyi İstanbul'a getir. ");
+        }
+
+        SmsAnalysis defaultAnalysis = SmsUtils.analyze(message);
+        assertTrue("Unicode without the national tables", defaultAnalysis.getEncoding() == Encoding.GSM_UNICODE);
+        assertTrue("Unicode parts", defaultAnalysis.getNumberOfParts() == 3);
+
+        SmsAnalysis analysis = SmsUtils.analyze(message, EnumSet.of(NationalLanguage.TURKISH), new SmsAnalysis());
+        assertTrue("7bit with the Turkish tables", analysis.getEncoding() == Encoding.GSM_7BIT);
+        assertTrue("Turkish locking shift", analysis.getLockingShiftTable() == NationalLanguage.TURKISH);
+        assertTrue("Default single shift", analysis.getSingleShiftTable() == NationalLanguage.DEFAULT);
+        assertTrue("Septets", analysis.getLength() == message.length());
+        assertTrue("Parts of 149 septets", analysis.getNumberOfParts() == 2);
+    }
+
+    @Test
+    public void defaultTablesAreKeptWhenNationalOnesDontSaveParts() {
+        SmsAnalysis analysis = SmsUtils.analyze("Merhaba {dünya}",
+                EnumSet.of(NationalLanguage.TURKISH, NationalLanguage.SPANISH), new SmsAnalysis());
+
+        assertTrue("7bit", analysis.getEncoding() == Encoding.GSM_7BIT);
+        assertTrue("Default locking shift", analysis.getLockingShiftTable() == NationalLanguage.DEFAULT);
+        assertTrue("Default single shift", analysis.getSingleShiftTable() == NationalLanguage.DEFAULT);
+        assertTrue("Septets", analysis.getLength() == 17);
+    }
+
+    @Test
+    public void noLanguagesGiveTheDefaultAnalysis() {
+        Random random = new Random(14);
+        Set<NationalLanguage> none = Collections.emptySet();
+        for (int i = 0; i < 2000; i++) {
+            String message = randomMessage(random);
+            SmsAnalysis expected = SmsUtils.analyze(message);
+            SmsAnalysis analysis = SmsUtils.analyze(message, none, new SmsAnalysis());
+
+            assertTrue("Encoding of " + message, analysis.getEncoding() == expected.getEncoding());
+            assertTrue("Length of " + message, analysis.getLength() == expected.getLength());
+            assertTrue("Parts of " + message, analysis.getNumberOfParts() == expected.getNumberOfParts());
+        }
+    }
+
+    @Test
+    public void codesAndCharactersMatch() {
+        for (NationalLanguage language : NationalLanguage.values()) {
+            assertTrue("Found by identifier", NationalLanguage.forIdentifier(language.getIdentifier()) == language);
+
+            for (int code = 0; code < 128; code++) {
+                int ch = language.getLockingShiftCharacter(code);
+                if (ch >= 0) {
+                    int found = language.getLockingShiftCode((char) ch);
+                    assertTrue(language + " locking shift code " + code,
+                            found >= 0 && language.getLockingShiftCharacter(found) == ch);
+                    assertTrue(language + " locking shift membership " + code,
+                            (NationalLanguage.getLockingShiftMembership((char) ch) & 1 << language.ordinal()) != 0);
+                }
+
+                ch = language.getSingleShiftCharacter(code);
+                if (ch >= 0) {
+                    int found = language.getSingleShiftCode((char) ch);
+                    assertTrue(language + " single shift code " + code,
+                            found >= 0 && language.getSingleShiftCharacter(found) == ch);
+                    assertTrue(language + " single shift membership " + code,
+                            (NationalLanguage.getSingleShiftMembership((char) ch) & 1 << language.ordinal()) != 0);
+                }
+            }
+        }
+        assertTrue("Spanish has no locking shift table", !NationalLanguage.SPANISH.hasLockingShiftTable());
+        assertTrue("Default tables", NationalLanguage.DEFAULT.getSingleShiftCode('€') == 0x65);
+    }
+
+    @Test
+    public void fewestPartsOfAllTheCombinations() {
+        Random random = new Random(23);
+        NationalLanguage[] languages = NationalLanguage.values();
+        for (int i = 0; i < 3000; i++) {
+            Set<NationalLanguage> allowed = EnumSet.noneOf(NationalLanguage.class);
+            for (int j = random.nextInt(3); j >= 0; j--) {
+                allowed.add(languages[random.nextInt(languages.length)]);
+            }
+            String message = randomMessage(random, allowed);
+
+            int expectedParts = Integer.MAX_VALUE;
+            for (NationalLanguage lockingShift : languages) {
+                for (NationalLanguage singleShift : languages) {
+                    if ((lockingShift == NationalLanguage.DEFAULT || allowed.contains(lockingShift))
+                            && (singleShift == NationalLanguage.DEFAULT || allowed.contains(singleShift))) {
+                        expectedParts = Math.min(expectedParts, countParts(message, lockingShift, singleShift));
+                    }
+                }
+            }
+
+            SmsAnalysis analysis = SmsUtils.analyze(message, allowed, new SmsAnalysis());
+            if (expectedParts == Integer.MAX_VALUE) {
+                assertTrue("Unicode for " + message, analysis.getEncoding() == Encoding.GSM_UNICODE);
+                continue;
+            }
+            assertTrue("7bit for " + message, analysis.getEncoding() == Encoding.GSM_7BIT);
+            assertTrue("Parts of " + message + " with " + allowed, analysis.getNumberOfParts() == expectedParts);
+            assertTrue("Parts with the tables picked for " + message, countParts(message,
+                    analysis.getLockingShiftTable(), analysis.getSingleShiftTable()) == expectedParts);
+        }
+    }
+
+    /**
+     * Encodes the message with the tables and fills the parts with whole characters, the information elements
+     * of the tables other than the default ones taking 3 bytes each of the User Data Header
+     *
+     * @return the number of parts, Integer.MAX_VALUE when the message can't be encoded with the tables
+     */
+    private static int countParts(String message, NationalLanguage lockingShift, NationalLanguage singleShift) {
+        int[] codes = new int[message.length()];
+        int septets = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char ch = message.charAt(i);
+            if (lockingShift.getLockingShiftCode(ch) >= 0) {
+                codes[i] = lockingShift.getLockingShiftCode(ch);
+                septets++;
+            } else if (singleShift.getSingleShiftCode(ch) >= 0) {
+                codes[i] = 0x1B00 | singleShift.getSingleShiftCode(ch);
+                septets += 2;
+            } else {
+                return Integer.MAX_VALUE;
+            }
+        }
+
+        int elements = (lockingShift == NationalLanguage.DEFAULT ? 0 : 1)
+                + (singleShift == NationalLanguage.DEFAULT ? 0 : 1);
+        int singlePart = elements == 0 ? 160 : (140 - 1 - 3 * elements) * 8 / 7;
+        if (septets <= singlePart) {
+            return 1;
+        }
+
+        int multiPart = (140 - 6 - 3 * elements) * 8 / 7;
+        int parts = 1;
+        int partSeptets = 0;
+        for (int code : codes) {
+            int width = code > 0x7F ? 2 : 1;
+            // a part can't end with an escape code, which would be read as the start of an extended character
+            int end = code == 0x1B ? partSeptets + width + 1 : partSeptets + width;
+            if (end > multiPart) {
+                parts++;
+                partSeptets = width;
+            } else {
+                partSeptets += width;
+            }
+        }
+        return parts;
+    }
+
+    private static String randomMessage(Random random) {
+        return randomMessage(random, EnumSet.noneOf(NationalLanguage.class));
+    }
+
+    private static String randomMessage(Random random, Set<NationalLanguage> languages) {
+        StringBuilder pool = new StringBuilder("abcdefghij €{}ΔÆ\u001b");
+        for (NationalLanguage language : languages) {
+            for (int j = 0; j < 6; j++) {
+                int ch = language.getLockingShiftCharacter(random.nextInt(128));
+                if (ch > 0) {
+                    pool.append((char) ch);
+                }
+                ch = language.getSingleShiftCharacter(random.nextInt(128));
+                if (ch > 0) {
+                    pool.append((char) ch);
+                }
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            pool.append("Ж😀");
+        }
+
+        int length = random.nextInt(500);
+        StringBuilder message = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            message.append(pool.charAt(random.nextInt(pool.length())));
+        }
+        return message.toString();
+    }
+}
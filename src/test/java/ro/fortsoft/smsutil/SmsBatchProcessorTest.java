@@ -0,0 +1,99 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.domain.BatchResult;
+import ro.fortsoft.smsutil.domain.BatchStatistics;
+import ro.fortsoft.smsutil.domain.Parts;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmsBatchProcessorTest {
+
+    @Test
+    public void resultsAreInInputOrderWithTheTotals() throws InterruptedException {
+        Random random = new Random(11);
+        List<String> messages = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            messages.add(SmsUtilsTest.randomMessage(random, random.nextInt(500), i % 3 == 0));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            SmsBatchProcessor processor = new SmsBatchProcessor(executor, 4);
+            BatchResult<Parts> counted = processor.countParts(messages);
+            BatchResult<SmsParts> split = processor.splitSms(messages);
+
+            long totalParts = 0;
+            long unicodeMessages = 0;
+            long[] histogram = new long[16];
+            for (int i = 0; i < messages.size(); i++) {
+                SmsParts expected = SmsUtils.splitSms(messages.get(i));
+                Parts parts = counted.getResults().get(i);
+                SmsParts smsParts = split.getResults().get(i);
+
+                assertTrue("Counted in order", parts.getNumberOfParts() == expected.getParts().length
+                        && parts.getEncoding() == expected.getEncoding());
+                assertTrue("Split in order", Arrays.equals(smsParts.getParts(), expected.getParts()));
+
+                totalParts += expected.getParts().length;
+                histogram[expected.getParts().length]++;
+                if (expected.getEncoding() == Encoding.GSM_UNICODE) {
+                    unicodeMessages++;
+                }
+            }
+
+            for (BatchStatistics statistics : new BatchStatistics[] {counted.getStatistics(), split.getStatistics()}) {
+                assertTrue("Messages", statistics.getNumberOfMessages() == messages.size());
+                assertTrue("Unicode messages", statistics.getNumberOfMessages(Encoding.GSM_UNICODE) == unicodeMessages);
+                assertTrue("Total parts", statistics.getTotalParts() == totalParts);
+                for (int parts = 0; parts < histogram.length; parts++) {
+                    assertTrue("Messages with " + parts + " parts",
+                            statistics.getNumberOfMessagesWithParts(parts) == histogram[parts]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue("Executor stopped", executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void charSequenceMessagesAreCountedAndSplit() throws InterruptedException {
+        List<StringBuilder> messages = new ArrayList<StringBuilder>();
+        String multipart = SmsUtilsTest.randomMessage(new Random(6), 400, false);
+        for (String message : new String[] {"Hello", "Price 5€ {ok}", "Привет мир", multipart}) {
+            messages.add(new StringBuilder(message));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            SmsBatchProcessor processor = new SmsBatchProcessor(executor, 2);
+            BatchResult<Parts> counted = processor.countParts(messages);
+            BatchResult<SmsParts> split = processor.splitSms(messages);
+            for (int i = 0; i < messages.size(); i++) {
+                SmsParts expected = SmsUtils.splitSms(messages.get(i).toString());
+                assertTrue("Counted", counted.getResults().get(i).getNumberOfParts() == expected.getParts().length);
+                assertTrue("Split", Arrays.equals(split.getResults().get(i).getParts(), expected.getParts()));
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue("Executor stopped", executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void chunksAreLargeEnoughForShortMessages() {
+        assertTrue("Small batches run in one chunk", SmsBatchProcessor.getChunkSize(500, 8) >= 500);
+        assertTrue("Large batches get several chunks per thread",
+                SmsBatchProcessor.getChunkSize(1000000, 8) == 1000000 / 32);
+    }
+}
@@ -0,0 +1,107 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmsCounterTest {
+
+    @Test
+    public void remainingCharactersFollowTheCurrentPart() {
+        SmsCounter counter = new SmsCounter();
+        assertTrue("Empty message has the whole single part left", counter.getRemainingInPart() == 160);
+
+        for (int i = 0; i < 160; i++) {
+            counter.append('1');
+        }
+        assertTrue("Single part is full", counter.getNumberOfParts() == 1 && counter.getRemainingInPart() == 0);
+
+        counter.append('{');
+        assertTrue("Extended character moves to multipart", counter.getNumberOfParts() == 2
+                && counter.getRemainingInPart() == 153 - 9);
+
+        counter.append("ț");
+        assertTrue("Unicode character switches the encoding", counter.getEncoding() == Encoding.GSM_UNICODE
+                && counter.getNumberOfParts() == 3 && counter.getRemainingInPart() == 67 - (162 - 134));
+
+        counter.deleteCharAt(counter.length() - 1);
+        assertTrue("Back to 7bit", counter.getEncoding() == Encoding.GSM_7BIT && counter.getNumberOfParts() == 2);
+    }
+
+    @Test
+    public void randomEditsMatchTheAnalysisOfTheWholeMessage() {
+        Random random = new Random(9);
+        SmsAnalysis analysis = new SmsAnalysis();
+
+        for (int session = 0; session < 200; session++) {
+            SmsCounter counter = new SmsCounter();
+            StringBuilder message = new StringBuilder();
+
+            for (int edit = 0; edit < 300; edit++) {
+                int kind = random.nextInt(10);
+                if (kind < 5 || message.length() == 0) {
+                    String text = SmsUtilsTest.randomMessage(random, random.nextInt(20), session % 3 == 0);
+                    if (random.nextInt(20) == 0) {
+                        text = random.nextBoolean() ? "\uD83D" : "\uDE00";
+                    }
+                    int index = kind < 3 ? message.length() : random.nextInt(message.length() + 1);
+                    counter.insert(index, text);
+                    message.insert(index, text);
+                } else {
+                    int start = kind < 8 ? message.length() - 1 : random.nextInt(message.length());
+                    int end = Math.min(message.length(), start + 1 + random.nextInt(kind < 8 ? 1 : 30));
+                    counter.delete(start, end);
+                    message.delete(start, end);
+                }
+
+                if (random.nextInt(3) > 0) {
+                    assertCounterMatches(counter, message.toString(), analysis);
+                }
+            }
+            assertCounterMatches(counter, message.toString(), analysis);
+        }
+    }
+
+    @Test
+    public void editsInTheMiddleOfALongMessageMoveTheLaterParts() {
+        Random random = new Random(13);
+        SmsAnalysis analysis = new SmsAnalysis();
+        String message = SmsUtilsTest.randomMessage(random, 3000, false);
+        SmsCounter counter = new SmsCounter(message);
+        StringBuilder expected = new StringBuilder(message);
+        String[] edits = {"a", "{", "€€", "\u001B", "ab{", "Д"};
+
+        for (int edit = 0; edit < 400; edit++) {
+            int index = expected.length() / 4 + random.nextInt(expected.length() / 2);
+            if (edit % 2 == 0) {
+                String text = edits[random.nextInt(edits.length)];
+                counter.insert(index, text);
+                expected.insert(index, text);
+            } else {
+                int end = index + 1 + random.nextInt(3);
+                counter.delete(index, end);
+                expected.delete(index, end);
+            }
+            assertCounterMatches(counter, expected.toString(), analysis);
+        }
+    }
+
+    private static void assertCounterMatches(SmsCounter counter, String message, SmsAnalysis analysis) {
+        SmsUtils.analyze(message, analysis);
+        assertTrue("Same message", counter.toString().equals(message));
+        assertTrue("Same encoding for: " + message, counter.getEncoding() == analysis.getEncoding());
+        assertTrue("Same number of parts for: " + message, counter.getNumberOfParts() == analysis.getNumberOfParts());
+        assertTrue("Same length for: " + message, counter.analyze(new SmsAnalysis()).getLength() == analysis.getLength());
+
+        SmsParts smsParts = SmsUtils.splitSms(message);
+        String lastPart = smsParts.getParts()[smsParts.getParts().length - 1];
+        int maxLength = smsParts.getParts().length == 1 ? analysis.getEncoding().getMaxLengthSinglePart()
+                : analysis.getEncoding().getMaxLengthMultiPart();
+        assertTrue("Remaining in the last part for: " + message,
+                counter.getRemainingInPart() == maxLength - lastPart.length());
+    }
+}
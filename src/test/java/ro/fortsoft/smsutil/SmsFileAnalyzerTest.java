@@ -0,0 +1,104 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.domain.BatchStatistics;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmsFileAnalyzerTest {
+
+    @Test
+    public void everyLineIsAnalysedAsItsString() throws IOException, InterruptedException {
+        Random random = new Random(5);
+        List<String> messages = new ArrayList<String>();
+        for (int i = 0; i < 3000; i++) {
+            String message = SmsUtilsTest.randomMessage(random, random.nextInt(400), i % 4 == 0)
+                    .replace('\n', ' ').replace('\r', ' ');
+            messages.add(i % 7 == 0 ? message + "😀" : message);
+        }
+
+        File file = writeLines(messages, true);
+        try {
+            final List<long[]> lines = Collections.synchronizedList(new ArrayList<long[]>());
+            SmsLineHandler handler = new SmsLineHandler() {
+                @Override
+                public void onLine(long offset, SmsAnalysis analysis) {
+                    lines.add(new long[] {offset, analysis.getEncoding().ordinal(), analysis.getLength(),
+                            analysis.getNumberOfParts()});
+                }
+            };
+
+            SmsFileAnalyzer analyzer = new SmsFileAnalyzer(4093, 512);
+            BatchStatistics sequential = analyzer.analyze(file, handler);
+            assertLinesMatch(messages, lines);
+
+            lines.clear();
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            BatchStatistics parallel;
+            try {
+                parallel = analyzer.analyze(file, handler, executor);
+            } finally {
+                executor.shutdown();
+                assertTrue("Executor stopped", executor.awaitTermination(10, TimeUnit.SECONDS));
+            }
+            Collections.sort(lines, new java.util.Comparator<long[]>() {
+                @Override
+                public int compare(long[] line1, long[] line2) {
+                    return line1[0] < line2[0] ? -1 : line1[0] == line2[0] ? 0 : 1;
+                }
+            });
+            assertLinesMatch(messages, lines);
+
+            long totalParts = 0;
+            for (String message : messages) {
+                totalParts += SmsUtils.getNumberOfParts(message).getNumberOfParts();
+            }
+            for (BatchStatistics statistics : new BatchStatistics[] {sequential, parallel}) {
+                assertTrue("All lines", statistics.getNumberOfMessages() == messages.size());
+                assertTrue("Total parts", statistics.getTotalParts() == totalParts);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertLinesMatch(List<String> messages, List<long[]> lines) {
+        assertTrue("One result per line", lines.size() == messages.size());
+        SmsAnalysis expected = new SmsAnalysis();
+        for (int i = 0; i < messages.size(); i++) {
+            SmsUtils.analyze(messages.get(i), expected);
+            long[] line = lines.get(i);
+            assertTrue("Line " + i + " encoding", line[1] == expected.getEncoding().ordinal());
+            assertTrue("Line " + i + " length", line[2] == expected.getLength());
+            assertTrue("Line " + i + " parts", line[3] == expected.getNumberOfParts());
+        }
+    }
+
+    private static File writeLines(List<String> messages, boolean windowsLineEndings) throws IOException {
+        File file = File.createTempFile("campaign", ".txt");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+            for (int i = 0; i < messages.size(); i++) {
+                out.write(messages.get(i).getBytes("UTF-8"));
+                out.write((windowsLineEndings && i % 2 == 0 ? "\r\n" : "\n").getBytes("UTF-8"));
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,122 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.domain.Parts;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmsPartsCacheTest {
+
+    @Test
+    public void repeatedMessagesShareTheResult() {
+        SmsPartsCache cache = new SmsPartsCache(1 << 20, 1000);
+        String message = "Your order has been shipped";
+
+        Parts parts = cache.getNumberOfParts(message);
+        assertTrue("Parts", parts.getNumberOfParts() == 1 && parts.getEncoding() == Encoding.GSM_7BIT);
+        assertTrue("Parts shared", cache.getNumberOfParts(new String(message)) == parts);
+
+        SmsParts smsParts = cache.splitSms(message);
+        assertTrue("Split", Arrays.equals(smsParts.getParts(), SmsUtils.splitSms(message).getParts()));
+        assertTrue("Split shared", cache.splitSms(message) == smsParts);
+        assertTrue("Parts kept", cache.getNumberOfParts(message) == parts);
+
+        assertTrue("Hits", cache.getHits() == 3);
+        assertTrue("Misses", cache.getMisses() == 2);
+        assertTrue("Hit rate", cache.getHitRate() == 0.6);
+        assertTrue("Size", cache.size() == 1);
+    }
+
+    @Test
+    public void longMessagesAreNotCached() {
+        SmsPartsCache cache = new SmsPartsCache(1 << 20, 10);
+        String message = "A message longer than 10";
+
+        assertTrue("Split", cache.splitSms(message).getParts()[0].equals(message));
+        assertTrue("Split again", cache.splitSms(message).getParts()[0].equals(message));
+        assertTrue("Bypassed", cache.getBypassed() == 2 && cache.getHits() == 0 && cache.getMisses() == 0);
+        assertTrue("Not cached", cache.size() == 0 && cache.getWeight() == 0);
+    }
+
+    @Test
+    public void weightStaysUnderTheMaximum() {
+        int maxWeight = 20000;
+        SmsPartsCache cache = new SmsPartsCache(maxWeight, 1000);
+        for (int i = 0; i < 1000; i++) {
+            cache.splitSms("Alert number " + i + " for your account");
+            assertTrue("Weight " + cache.getWeight(), cache.getWeight() <= maxWeight);
+        }
+        assertTrue("Evicted", cache.getEvictions() > 0 && cache.size() + cache.getEvictions() == 1000);
+
+        cache.clear();
+        assertTrue("Cleared", cache.size() == 0 && cache.getWeight() == 0);
+    }
+
+    @Test
+    public void removedAndReplacedEntriesAreDropped() {
+        SmsPartsCache cache = new SmsPartsCache(1 << 26, 1000);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 1000; i++) {
+                String message = "Round " + round + " message " + i;
+                cache.getNumberOfParts(message);
+                cache.splitSms(message);
+            }
+            assertTrue("Replaced entries dropped", cache.getClockSize() <= 2 * cache.size() + 1);
+
+            cache.clear();
+            assertTrue("Empty", cache.size() == 0 && cache.getWeight() == 0 && cache.getClockSize() == 0);
+        }
+    }
+
+    @Test
+    public void referencedMessagesAreKept() {
+        SmsPartsCache cache = new SmsPartsCache(10000, 1000);
+        String frequent = "Your verification code is 1234";
+        cache.splitSms(frequent);
+        for (int i = 0; i < 500; i++) {
+            cache.splitSms("Notice " + i);
+            assertTrue("Kept " + i, cache.splitSms(frequent) != null && cache.getMisses() == i + 2);
+        }
+        assertTrue("Frequent hits", cache.getHits() == 500);
+    }
+
+    @Test
+    public void concurrentCallsGetTheSameParts() throws InterruptedException {
+        final SmsPartsCache cache = new SmsPartsCache(8000, 1000);
+        final String[] messages = new String[64];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = "Message " + i + " with the extended € and {} chars repeated " + i;
+        }
+
+        final AtomicBoolean failed = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int seed = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 20000; j++) {
+                        String message = messages[(j * 7 + seed) % messages.length];
+                        int expected = SmsUtils.getNumberOfParts(message).getNumberOfParts();
+                        if (j % 2 == 0 ? cache.splitSms(message).getParts().length != expected
+                                : cache.getNumberOfParts(message).getNumberOfParts() != expected) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("Same parts", !failed.get());
+        assertTrue("Weight " + cache.getWeight(), cache.getWeight() <= 8000);
+        assertTrue("Lookups", cache.getHits() + cache.getMisses() == 80000);
+    }
+}
@@ -0,0 +1,163 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmsReassemblerTest {
+
+    @Test
+    public void partsAreJoinedInOrderWhenTheLastOneArrives() {
+        RecordingHandler handler = new RecordingHandler();
+        SmsReassembler reassembler = new SmsReassembler(handler, 1, TimeUnit.MINUTES, 100);
+
+        assertTrue("Part 3", reassembler.addPart("40700000000", 17, 3, 3, "!"));
+        assertTrue("Part 1", reassembler.addPart("40700000000", 17, 3, 1, "Hello "));
+        assertTrue("Not yet complete", handler.messages.isEmpty());
+        assertTrue("Duplicate", !reassembler.addPart("40700000000", 17, 3, 1, "Hello "));
+        assertTrue("Other originator", reassembler.addPart("40711111111", 17, 3, 2, "there"));
+        assertTrue("Pending", reassembler.getPendingMessages() == 2);
+
+        reassembler.addPart("40700000000", 17, 3, 2, "world");
+        assertTrue("Completed", handler.messages.get("40700000000/17").equals("Hello world!"));
+        assertTrue("Pending after completion", reassembler.getPendingMessages() == 1);
+    }
+
+    @Test
+    public void singlePartIsPassedThrough() {
+        RecordingHandler handler = new RecordingHandler();
+        SmsReassembler reassembler = new SmsReassembler(handler, 1, TimeUnit.MINUTES, 100);
+
+        reassembler.addPart("40700000000", 0, 1, 1, "Short");
+        assertTrue("Message", handler.messages.get("40700000000/0").equals("Short"));
+        assertTrue("Nothing pending", reassembler.getPendingMessages() == 0);
+    }
+
+    @Test
+    public void incompleteMessagesExpire() {
+        RecordingHandler handler = new RecordingHandler();
+        SmsReassembler reassembler = new SmsReassembler(handler, 10, TimeUnit.SECONDS, 100);
+
+        reassembler.addPart("40700000000", 1, 2, 2, "second");
+        reassembler.addPart("40700000000", 2, 2, 1, "first");
+        reassembler.addPart("40700000000", 2, 2, 2, "second");
+        assertTrue("Not expired yet", reassembler.evictExpired() == 0);
+
+        assertTrue("Expired", reassembler.evictExpired(System.nanoTime() + TimeUnit.SECONDS.toNanos(11)) == 1);
+        CharSequence[] parts = handler.expired.get("40700000000/1");
+        assertTrue("Missing part", parts[0] == null && parts[1].equals("second"));
+        assertTrue("Completed message kept", handler.messages.get("40700000000/2").equals("firstsecond"));
+        assertTrue("Nothing pending", reassembler.getPendingMessages() == 0);
+    }
+
+    @Test
+    public void oldestMessagesAreEvictedAboveTheMaximum() {
+        RecordingHandler handler = new RecordingHandler();
+        SmsReassembler reassembler = new SmsReassembler(handler, 1, TimeUnit.MINUTES, 2);
+
+        for (int reference = 0; reference < 5; reference++) {
+            reassembler.addPart("40700000000", reference, 2, 1, "part");
+        }
+        assertTrue("Bounded", reassembler.getPendingMessages() == 2);
+        assertTrue("Oldest evicted", handler.expired.size() == 3 && handler.expired.containsKey("40700000000/0")
+                && handler.expired.containsKey("40700000000/2"));
+
+        reassembler.addPart("40700000000", 4, 2, 2, "s");
+        assertTrue("Newest completed", handler.messages.get("40700000000/4").equals("parts"));
+    }
+
+    @Test
+    public void completedMessagesAreNotHeldBehindAnIncompleteOne() {
+        RecordingHandler handler = new RecordingHandler();
+        SmsReassembler reassembler = new SmsReassembler(handler, 1, TimeUnit.MINUTES, 100);
+
+        reassembler.addPart("40711111111", 0, 2, 1, "stuck");
+        for (int reference = 0; reference < 200000; reference++) {
+            reassembler.addPart("40700000000", reference, 2, 2, "b");
+            reassembler.addPart("40700000000", reference, 2, 1, "a");
+            assertTrue("Start order bounded", reassembler.getStartOrderSize() <= 2);
+        }
+
+        assertTrue("All completed", handler.completions.get() == 200000);
+        assertTrue("Only the incomplete message held", reassembler.getPendingMessages() == 1
+                && reassembler.getStartOrderSize() == 1);
+    }
+
+    @Test
+    public void partsAddedConcurrentlyCompleteEveryMessageOnce() throws Exception {
+        final RecordingHandler handler = new RecordingHandler();
+        final SmsReassembler reassembler = new SmsReassembler(handler, 1, TimeUnit.MINUTES, 100000);
+
+        int messages = 20000;
+        final List<int[]> parts = new ArrayList<int[]>();
+        for (int reference = 0; reference < messages; reference++) {
+            for (int sequence = 1; sequence <= 3; sequence++) {
+                parts.add(new int[] {reference, sequence});
+            }
+        }
+        Collections.shuffle(parts, new Random(16));
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            final int count = threads;
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    for (int i = thread; i < parts.size(); i += count) {
+                        int[] part = parts.get(i);
+                        reassembler.addPart("originator" + part[0] % 7, part[0], 3, part[1],
+                                Integer.toString(part[1]));
+                    }
+                    return count;
+                }
+            }));
+        }
+        for (Future<Integer> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        assertTrue("Executor stopped", executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue("All completed", handler.messages.size() == messages);
+        assertTrue("Completed once", handler.completions.get() == messages);
+        assertTrue("In order", handler.messages.get("originator3/10").equals("123"));
+        assertTrue("Nothing expired", handler.expired.isEmpty());
+        assertTrue("Nothing pending", reassembler.getPendingMessages() == 0 && reassembler.getStartOrderSize() == 0);
+    }
+
+    private static class RecordingHandler implements SmsReassemblyHandler {
+
+        private final Map<String, String> messages = new ConcurrentHashMap<String, String>();
+
+        private final Map<String, CharSequence[]> expired = new ConcurrentHashMap<String, CharSequence[]>();
+
+        private final AtomicInteger completions = new AtomicInteger();
+
+        @Override
+        public void onMessage(String originator, int reference, CharSequence message) {
+            completions.incrementAndGet();
+            messages.put(originator + "/" + reference, message.toString());
+        }
+
+        @Override
+        public void onExpired(String originator, int reference, CharSequence[] parts) {
+            expired.put(originator + "/" + reference, parts);
+        }
+    }
+}
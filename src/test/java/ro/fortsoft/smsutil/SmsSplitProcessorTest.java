@@ -0,0 +1,223 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import ro.fortsoft.smsutil.domain.SmsPart;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmsSplitProcessorTest {
+
+    @Test
+    public void partsAreEmittedInOrderWithinEachMessage() throws Exception {
+        Random random = new Random(18);
+        List<String> messages = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int j = random.nextInt(600); j > 0; j--) {
+                message.append("ab €Ж".charAt(random.nextInt(5)));
+            }
+            messages.add(message.toString());
+        }
+
+        // the parts are grouped by the message they carry, so each message is published in a holder of its own,
+        // the empty ones possibly being the same String instance
+        List<CharSequence> published = new ArrayList<CharSequence>();
+        Map<CharSequence, Integer> messageIndexes = new IdentityHashMap<CharSequence, Integer>();
+        for (int i = 0; i < messages.size(); i++) {
+            CharSequence holder = CharBuffer.wrap(messages.get(i));
+            published.add(holder);
+            messageIndexes.put(holder, i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ListPublisher publisher = new ListPublisher(published);
+        SmsSplitProcessor processor = new SmsSplitProcessor(executor, 8);
+        RecordingSubscriber subscriber = new RecordingSubscriber(3);
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        assertTrue("Completed", subscriber.terminated.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue("Executor stopped", executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue("No error", subscriber.error == null);
+        assertTrue("Demand honoured", !subscriber.overflow);
+        assertTrue("Messages requested ahead", publisher.maxInFlight.get() <= 8);
+
+        List<List<SmsPart>> partsByMessage = new ArrayList<List<SmsPart>>();
+        for (int i = 0; i < messages.size(); i++) {
+            partsByMessage.add(new ArrayList<SmsPart>());
+        }
+        for (SmsPart part : subscriber.parts) {
+            List<SmsPart> parts = partsByMessage.get(messageIndexes.get(part.getMessage()));
+            assertTrue("In order", part.getPartIndex() == parts.size());
+            parts.add(part);
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            String message = messages.get(i);
+            SmsParts expected = SmsUtils.splitSms(message);
+            List<SmsPart> parts = partsByMessage.get(i);
+            assertTrue("Parts of " + message, parts.size() == expected.getParts().length);
+            for (SmsPart part : parts) {
+                assertTrue("Encoding", part.getEncoding() == expected.getEncoding());
+                assertTrue("Number of parts", part.getNumberOfParts() == parts.size());
+                String content = part.getContent().toString();
+                assertTrue("Content", expected.getEncoding() == Encoding.GSM_7BIT
+                        ? SmsUtils.escapeAny7BitExtendedCharsetInContent(content)
+                                .equals(expected.getParts()[part.getPartIndex()])
+                        : content.equals(expected.getParts()[part.getPartIndex()]));
+            }
+        }
+    }
+
+    @Test
+    public void nonPositiveRequestIsAnError() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ListPublisher publisher = new ListPublisher(Collections.singletonList("Hello"));
+        SmsSplitProcessor processor = new SmsSplitProcessor(executor, 1);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+        assertTrue("Terminated", subscriber.terminated.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue("Executor stopped", executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue("Error", subscriber.error instanceof IllegalArgumentException);
+        assertTrue("Upstream cancelled", publisher.cancelled);
+    }
+
+    @Test
+    public void secondSubscriberIsRejected() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        SmsSplitProcessor processor = new SmsSplitProcessor(executor, 1);
+        processor.subscribe(new RecordingSubscriber(0));
+        RecordingSubscriber second = new RecordingSubscriber(0);
+        processor.subscribe(second);
+        executor.shutdown();
+        assertTrue("Executor stopped", executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue("Rejected", second.error instanceof IllegalStateException);
+    }
+
+    /**
+     * Emits the messages as they are requested, in the thread calling request
+     */
+    private static class ListPublisher implements Publisher<CharSequence> {
+
+        private final List<? extends CharSequence> messages;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private volatile boolean cancelled;
+
+        private int index;
+
+        private ListPublisher(List<? extends CharSequence> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super CharSequence> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    maxInFlight.set(Math.max(maxInFlight.get(), (int) requested.get()));
+                    if (wip.getAndIncrement() != 0) {
+                        return;
+                    }
+                    do {
+                        while (requested.get() > 0 && index < messages.size() && !cancelled) {
+                            requested.decrementAndGet();
+                            subscriber.onNext(messages.get(index++));
+                        }
+                        if (index == messages.size() && !cancelled) {
+                            index++;
+                            subscriber.onComplete();
+                        }
+                    } while (wip.decrementAndGet() != 0);
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static class RecordingSubscriber implements Subscriber<SmsPart> {
+
+        private final int batch;
+
+        private final List<SmsPart> parts = new ArrayList<SmsPart>();
+
+        private final CountDownLatch terminated = new CountDownLatch(1);
+
+        private volatile Subscription subscription;
+
+        private volatile Throwable error;
+
+        private volatile boolean overflow;
+
+        private int outstanding;
+
+        private RecordingSubscriber(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(SmsPart part) {
+            parts.add(part);
+            if (--outstanding < 0) {
+                overflow = true;
+            }
+            if (outstanding == 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.countDown();
+        }
+    }
+}
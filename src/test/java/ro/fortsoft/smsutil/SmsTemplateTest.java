@@ -0,0 +1,90 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.SmsParts;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmsTemplateTest {
+
+    @Test
+    public void placeholdersAreReplacedByTheirValues() {
+        SmsTemplate template = SmsTemplate.compile("Hi {name}, your code is {otp}. {name}, {not a placeholder} {}");
+
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("name", "Ana");
+        values.put("otp", "1234");
+
+        assertTrue("Placeholders in order", template.getPlaceholders().equals(Arrays.asList("name", "otp", "name")));
+        assertTrue("Rendered message", template.render(values)
+                .equals("Hi Ana, your code is 1234. Ana, {not a placeholder} {}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingValueIsRejected() {
+        SmsTemplate.compile("Hi {name}").analyze(new HashMap<String, String>());
+    }
+
+    @Test
+    public void analysisMatchesTheSplitOfTheRenderedMessage() {
+        Random random = new Random(8);
+        SmsAnalysis analysis = new SmsAnalysis();
+
+        for (int i = 0; i < 3000; i++) {
+            int placeholders = random.nextInt(4);
+            StringBuilder text = new StringBuilder(randomText(random, i));
+            for (int p = 0; p < placeholders; p++) {
+                text.append("{p").append(p).append('}').append(randomText(random, i));
+            }
+            SmsTemplate template = SmsTemplate.compile(text.toString());
+
+            String[] values = new String[placeholders];
+            for (int p = 0; p < placeholders; p++) {
+                values[p] = randomText(random, i + p);
+            }
+
+            String message = template.render(values);
+            SmsParts smsParts = SmsUtils.splitSms(message);
+
+            template.analyze(values, analysis);
+            assertTrue("Same encoding for: " + message, analysis.getEncoding() == smsParts.getEncoding());
+            assertTrue("Same number of parts for: " + message,
+                    analysis.getNumberOfParts() == smsParts.getParts().length);
+            assertTrue("Same length for: " + message, analysis.getLength() == SmsUtils.analyze(message).getLength());
+            assertTrue("Same split for: " + message,
+                    Arrays.equals(template.splitSms(values).getParts(), smsParts.getParts()));
+        }
+    }
+
+    @Test
+    public void surrogatePairAcrossValueAndTemplateIsKeptTogether() {
+        SmsTemplate template = SmsTemplate.compile(repeat('Д', 133) + "\uD83D{emoji}");
+
+        SmsAnalysis analysis = template.analyze(new String[] {"\uDE00"}, new SmsAnalysis());
+        SmsParts smsParts = SmsUtils.splitSms(template.render(new String[] {"\uDE00"}));
+
+        assertTrue("Three parts", analysis.getNumberOfParts() == 3 && smsParts.getParts().length == 3);
+        assertTrue("Pair moved to the last part", smsParts.getParts()[2].equals("😀"));
+    }
+
+    private static String randomText(Random random, int seed) {
+        String text = SmsUtilsTest.randomMessage(random, random.nextInt(200), seed % 7 == 0)
+                .replace('{', '(').replace('}', ')');
+        if (seed % 11 == 0 && random.nextBoolean()) {
+            text = random.nextBoolean() ? text + '\uD83D' : '\uDE00' + text;
+        }
+        return text;
+    }
+
+    private static String repeat(char ch, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, ch);
+        return new String(chars);
+    }
+}
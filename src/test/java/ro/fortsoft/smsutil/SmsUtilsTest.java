@@ -1,9 +1,16 @@
 package ro.fortsoft.smsutil;
 
 import org.junit.Test;
+import ro.fortsoft.smsutil.charset.GSM0338Charset;
 import ro.fortsoft.smsutil.domain.Parts;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
 import ro.fortsoft.smsutil.domain.SmsParts;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.assertTrue;
 
 public class SmsUtilsTest {
@@ -112,6 +119,50 @@ public class SmsUtilsTest {
         assertTrue("Message takes up 2 spaces", smsParts.getParts()[0].length() == 2);
     }
 
+    @Test
+    public void surrogatePairIsNotSplitAcrossUnicodeParts() {
+        StringBuilder message = new StringBuilder("Д");
+        for (int i = 0; i < 65; i++) {
+            message.append('1');
+        }
+        message.append("\uD83D\uDE00"); // emoji would take positions 67 and 68
+        message.append("2222222222");
+
+        SmsParts smsParts = SmsUtils.splitSms(message.toString());
+        assertTrue("Encoding is Unicode", smsParts.getEncoding() == Encoding.GSM_UNICODE);
+        assertTrue("It takes 2 parts", smsParts.getParts().length == 2);
+        assertTrue("First part is smaller by one", smsParts.getParts()[0].length() == 66);
+        assertTrue("Second part starts with the emoji", smsParts.getParts()[1].startsWith("\uD83D\uDE00"));
+
+        Parts numParts = SmsUtils.getNumberOfParts(message.toString());
+        assertTrue("It takes 2 parts - numParts", numParts.getNumberOfParts() == 2);
+    }
+
+    @Test
+    public void emojiDenseMessagesAreCountedAsTheyAreSplit() {
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder message = new StringBuilder();
+            int length = 1 + random.nextInt(400);
+            while (message.length() < length) {
+                if (random.nextBoolean()) {
+                    message.appendCodePoint(0x1F600 + random.nextInt(80));
+                } else {
+                    message.append(random.nextBoolean() ? 'a' : 'Д');
+                }
+            }
+
+            String[] parts = SmsUtils.splitSms(message.toString()).getParts();
+            for (String part : parts) {
+                assertTrue("Part within 67 chars", parts.length == 1 || part.length() <= 67);
+                assertTrue("Part does not end with a high surrogate",
+                        ! Character.isHighSurrogate(part.charAt(part.length() - 1)));
+            }
+            assertTrue("Same number of parts",
+                    SmsUtils.getNumberOfParts(message.toString()).getNumberOfParts() == parts.length);
+        }
+    }
+
     @Test
     public void smsPartDetectionBypassOptimization() {
         String message = "11111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111111€000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000009€222222222222222222222222222222222333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333333€44444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444444€567";
@@ -123,4 +174,240 @@ public class SmsUtilsTest {
         numParts = SmsUtils.getNumberOfParts(message);
         assertTrue("Message takes up 5 spaces", numParts.getNumberOfParts() == 4);
     }
+
+    @Test
+    public void singlePassAnalysisAgreesWithSplittingTheMessage() {
+        Random random = new Random(42);
+        SmsAnalysis analysis = new SmsAnalysis();
+
+        for (int i = 0; i < 5000; i++) {
+            String message = randomMessage(random, random.nextInt(800), i % 10 == 0);
+            SmsParts smsParts = SmsUtils.splitSms(message);
+
+            SmsUtils.analyze(message, analysis);
+            assertTrue("Same encoding for: " + message, analysis.getEncoding() == smsParts.getEncoding());
+            assertTrue("Same number of parts for: " + message,
+                    analysis.getNumberOfParts() == smsParts.getParts().length);
+
+            if (analysis.getEncoding() == Encoding.GSM_7BIT) {
+                assertTrue("Length is the escaped length",
+                        analysis.getLength() == SmsUtils.escapeAny7BitExtendedCharsetInContent(message).length());
+            } else {
+                assertTrue("Length is the message length", analysis.getLength() == message.length());
+            }
+        }
+    }
+
+    @Test
+    public void partBoundariesPointIntoTheOriginalMessage() {
+        Random random = new Random(7);
+        SmsAnalysis analysis = new SmsAnalysis();
+
+        for (int i = 0; i < 2000; i++) {
+            String message = randomMessage(random, random.nextInt(800), i % 5 == 0);
+            String[] parts = SmsUtils.splitSms(message).getParts();
+
+            int[] boundaries = SmsUtils.getPartBoundaries(message, analysis);
+            assertTrue("One boundary more than parts", boundaries.length == parts.length + 1);
+            assertTrue("Whole message covered", boundaries[0] == 0 && boundaries[parts.length] == message.length());
+
+            for (int part = 0; part < parts.length; part++) {
+                String range = message.substring(boundaries[part], boundaries[part + 1]);
+                if (analysis.getEncoding() == Encoding.GSM_7BIT) {
+                    range = SmsUtils.escapeAny7BitExtendedCharsetInContent(range);
+                }
+                assertTrue("Part " + part + " matches the range", parts[part].equals(range));
+            }
+        }
+    }
+
+    @Test
+    public void partBoundariesForTheUsualRoomAreTheSplitBoundaries() {
+        Random random = new Random(14);
+        SmsAnalysis analysis = new SmsAnalysis();
+
+        for (int i = 0; i < 2000; i++) {
+            String message = randomMessage(random, 200 + random.nextInt(800), i % 3 == 0);
+            int[] boundaries = SmsUtils.getPartBoundaries(message, analysis);
+            assertTrue("Same boundaries for: " + message, Arrays.equals(boundaries, SmsSplitter.getPartBoundaries(
+                    message, analysis.getEncoding(), analysis.getEncoding().getMaxLengthMultiPart())));
+        }
+    }
+
+    @Test
+    public void partCannotEndWithEscapeCharacterEvenWhenItIsPartOfTheMessage() {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 152; i++) {
+            message.append('1');
+        }
+        message.append(GSM0338Charset.ESCAPE_CHAR);
+        for (int i = 0; i < 152; i++) {
+            message.append('2');
+        }
+
+        SmsParts smsParts = SmsUtils.splitSms(message.toString());
+        assertTrue("Escape moved to the second part", smsParts.getParts()[0].length() == 152);
+        assertTrue("It takes 2 parts", smsParts.getParts().length == 2);
+
+        SmsAnalysis analysis = SmsUtils.analyze(message);
+        assertTrue("Analysis counts 2 parts", analysis.getNumberOfParts() == 2);
+        assertTrue("Analysis length is 305", analysis.getLength() == 305);
+    }
+
+    @Test
+    public void boundedAnalysisStopsOnceOverTheMaximumNumberOfParts() {
+        Random random = new Random(10);
+        SmsAnalysis analysis = new SmsAnalysis();
+        SmsAnalysis bounded = new SmsAnalysis();
+
+        for (int i = 0; i < 5000; i++) {
+            String message = randomMessage(random, random.nextInt(800), i % 4 == 0);
+            int maxParts = 1 + random.nextInt(5);
+
+            SmsUtils.analyze(message, analysis);
+            SmsUtils.analyze(message, maxParts, bounded);
+            if (analysis.getNumberOfParts() <= maxParts) {
+                assertTrue("Fits for: " + message, ! bounded.isOverflow()
+                        && bounded.getNumberOfParts() == analysis.getNumberOfParts()
+                        && bounded.getEncoding() == analysis.getEncoding()
+                        && bounded.getLength() == analysis.getLength());
+            } else {
+                assertTrue("Overflow for: " + message, bounded.isOverflow()
+                        && bounded.getNumberOfParts() == maxParts + 1);
+            }
+        }
+    }
+
+    @Test
+    public void truncatedMessageIsTheLongestStartThatFits() {
+        Random random = new Random(11);
+        SmsAnalysis analysis = new SmsAnalysis();
+
+        for (int i = 0; i < 300; i++) {
+            String message = randomMessage(random, random.nextInt(600), i % 3 == 0);
+            if (i % 5 == 0) {
+                message = message.replace('Д', '\uD83D') + "\uD83D\uDE00";
+            }
+            int maxParts = 1 + random.nextInt(4);
+
+            int longest = 0;
+            for (int length = 1; length <= message.length(); length++) {
+                boolean cutsPair = length < message.length() && Character.isLowSurrogate(message.charAt(length))
+                        && Character.isHighSurrogate(message.charAt(length - 1));
+                if (! cutsPair && SmsUtils.analyze(message.substring(0, length), analysis).getNumberOfParts() <= maxParts) {
+                    longest = length;
+                }
+            }
+
+            assertTrue("Longest start for: " + message, SmsUtils.getTruncatedLength(message, maxParts) == longest);
+
+            SmsParts truncated = SmsUtils.truncateSms(message, maxParts);
+            assertTrue("Same split as the start", Arrays.equals(truncated.getParts(),
+                    SmsUtils.splitSms(message.substring(0, longest)).getParts()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maximumNumberOfPartsMustBePositive() {
+        SmsUtils.analyze("message", 0, new SmsAnalysis());
+    }
+
+    @Test
+    public void splitIsTheSameAsTheBaselineSplitter() {
+        Random random = new Random(12);
+        for (int i = 0; i < 20000; i++) {
+            assertSameAsBaseline(randomMessage(random, random.nextInt(800), i % 5 == 0));
+        }
+
+        String[] boundaryCharacters = {"\u001B", "€", "\u001B€", "€\u001B", "Д"};
+        for (int position = 140; position <= 160; position++) {
+            for (String boundaryCharacter : boundaryCharacters) {
+                StringBuilder message = new StringBuilder();
+                for (int i = 0; i < position; i++) {
+                    message.append(i % 37 == 0 ? '{' : 'a');
+                }
+                message.append(boundaryCharacter);
+                for (int i = 0; i < 320; i++) {
+                    message.append('b');
+                }
+                assertSameAsBaseline(message.toString());
+            }
+        }
+    }
+
+    private static void assertSameAsBaseline(String message) {
+        SmsParts parts = SmsUtils.splitSms(message);
+        SmsParts expected = baselineSplitSms(message);
+        assertTrue("Encoding of: " + message, parts.getEncoding() == expected.getEncoding());
+        assertTrue("Parts of: " + message, Arrays.equals(parts.getParts(), expected.getParts()));
+    }
+
+    /**
+     * The splitter as it was before parts became ranges of the message: the 7bit content is escaped, then cut into
+     * parts of 153 septets, one less when the part would end with the escape character
+     */
+    private static SmsParts baselineSplitSms(String content) {
+        boolean gsm7Bit = true;
+        for (int i = 0; i < content.length(); i++) {
+            if (GSM0338Charset.getCharacterType(content.charAt(i)) == GSM0338Charset.UNSUPPORTED_CHARACTER) {
+                gsm7Bit = false;
+            }
+        }
+
+        if (gsm7Bit) {
+            StringBuilder escaped = new StringBuilder();
+            for (int i = 0; i < content.length(); i++) {
+                char ch = content.charAt(i);
+                if (GSM0338Charset.getCharacterType(ch) == GSM0338Charset.EXTENDED_CHARACTER) {
+                    escaped.append(GSM0338Charset.ESCAPE_CHAR);
+                }
+                escaped.append(ch);
+            }
+            return new SmsParts(Encoding.GSM_7BIT, baselineSplit(escaped, Encoding.GSM_7BIT));
+        }
+        return new SmsParts(Encoding.GSM_UNICODE, baselineSplit(new StringBuilder(content), Encoding.GSM_UNICODE));
+    }
+
+    private static String[] baselineSplit(StringBuilder content, Encoding encoding) {
+        if (content.length() <= encoding.getMaxLengthSinglePart()) {
+            return new String[] {content.toString()};
+        }
+
+        List<String> parts = new ArrayList<String>();
+        int maxLengthMultipart = encoding.getMaxLengthMultiPart();
+        while (content.length() > 0) {
+            if (content.length() >= maxLengthMultipart) {
+                int endPosition = maxLengthMultipart;
+                if (encoding == Encoding.GSM_7BIT && content.charAt(endPosition - 1) == GSM0338Charset.ESCAPE_CHAR) {
+                    endPosition--;
+                }
+                parts.add(content.substring(0, endPosition));
+                content.delete(0, endPosition);
+            } else {
+                parts.add(content.toString());
+                break;
+            }
+        }
+        return parts.toArray(new String[parts.size()]);
+    }
+
+    static String randomMessage(Random random, int length, boolean allowUnicode) {
+        String base = "abcdefghij 0123456789.,!?@£$¥èéÄÖΔΦ\n\r";
+        String extended = "^{}\\[~]|€\f";
+
+        StringBuilder message = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 15) {
+                message.append(extended.charAt(random.nextInt(extended.length())));
+            } else if (kind < 17) {
+                message.append(GSM0338Charset.ESCAPE_CHAR);
+            } else if (allowUnicode && kind < 18) {
+                message.append('Д');
+            } else {
+                message.append(base.charAt(random.nextInt(base.length())));
+            }
+        }
+        return message.toString();
+    }
 }
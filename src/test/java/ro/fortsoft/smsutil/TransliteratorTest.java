@@ -0,0 +1,78 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+import ro.fortsoft.smsutil.domain.Transliteration;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class TransliteratorTest {
+
+    @Test
+    public void typographicCharactersKeepTheMessageIn7Bit() {
+        Transliteration transliteration = SmsUtils.transliterate("Don’t forget “the” code… it’s 1234 – thanks",
+                TransliterationPolicy.ALWAYS);
+
+        assertTrue("Applied", transliteration.isApplied());
+        assertTrue("Message", transliteration.getMessage().equals("Don't forget \"the\" code... it's 1234 - thanks"));
+        assertTrue("Replaced", transliteration.getReplacedCharacters() == 6);
+        assertTrue("Originally Unicode", transliteration.getOriginalAnalysis().getEncoding() == Encoding.GSM_UNICODE);
+        assertTrue("7bit", transliteration.getEncoding() == Encoding.GSM_7BIT);
+        assertTrue("Septets", transliteration.getAnalysis().getLength() == transliteration.getMessage().length());
+    }
+
+    @Test
+    public void replacementsAreKeptOnlyWhenTheySaveParts() {
+        Transliteration single = SmsUtils.transliterate("Bună ziua, ştiţi?", TransliterationPolicy.WHEN_FEWER_PARTS);
+        assertTrue("Single part either way", !single.isApplied());
+        assertTrue("Original message", single.getMessage().equals("Bună ziua, ştiţi?"));
+        assertTrue("Nothing saved", single.getSavedParts() == 0);
+        assertTrue("Transliterated analysis", single.getAnalysis().getEncoding() == Encoding.GSM_7BIT);
+
+        StringBuilder message = new StringBuilder();
+        while (message.length() < 100) {
+            message.append("Bună ziua, ştiţi? ");
+        }
+        Transliteration multi = SmsUtils.transliterate(message, TransliterationPolicy.WHEN_FEWER_PARTS);
+        assertTrue("Applied", multi.isApplied());
+        assertTrue("Romanian letters replaced", multi.getMessage().startsWith("Buna ziua, stiti? "));
+        assertTrue("Parts saved", multi.getSavedParts() == 1);
+    }
+
+    @Test
+    public void customTableReplacesAndDrops() {
+        Transliterator transliterator = new Transliterator().map("ß", "ss").map("\u200B", "").map("€", "EUR");
+
+        Transliteration transliteration = transliterator.transliterate("Straße\u200B 5€", TransliterationPolicy.ALWAYS);
+        assertTrue("Message", transliteration.getMessage().equals("Strasse 5EUR"));
+        assertTrue("Replacement", transliterator.getReplacement('€').equals("EUR"));
+        assertTrue("No replacement", transliterator.getReplacement('a') == null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void replacementMustBeInTheCharset() {
+        new Transliterator().map("ş", "ș");
+    }
+
+    @Test
+    public void analysisMatchesTheAnalysisOfTheResult() {
+        Transliterator transliterator = Transliterator.withDefaultTable();
+        String pool = "abc €{}\u001bșț’…\u200Bœ“Ж😀";
+        Random random = new Random(15);
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int j = random.nextInt(400); j > 0; j--) {
+                message.append(pool.charAt(random.nextInt(pool.length())));
+            }
+
+            Transliteration transliteration = transliterator.transliterate(message, TransliterationPolicy.ALWAYS);
+            SmsAnalysis expected = SmsUtils.analyze(transliteration.getMessage());
+            SmsAnalysis analysis = transliteration.getAnalysis();
+            assertTrue("Encoding of " + message, analysis.getEncoding() == expected.getEncoding());
+            assertTrue("Length of " + message, analysis.getLength() == expected.getLength());
+            assertTrue("Parts of " + message, analysis.getNumberOfParts() == expected.getNumberOfParts());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ro.fortsoft.smsutil;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class Utf8SmsAnalyzerTest {
+
+    @Test
+    public void malformedInputIsAnalysedAsTheDecodedString() throws Exception {
+        Random random = new Random(13);
+        byte[] interesting = {0x41, 0x1B, 0x7B, (byte) 0x80, (byte) 0xBF, (byte) 0xC2, (byte) 0xA3, (byte) 0xC0,
+                (byte) 0xE0, (byte) 0xA0, (byte) 0xED, (byte) 0xE2, (byte) 0x82, (byte) 0xAC, (byte) 0xF0,
+                (byte) 0x9F, (byte) 0x98, (byte) 0xF4, (byte) 0x90, (byte) 0xF5, (byte) 0xFF};
+
+        SmsAnalysis expected = new SmsAnalysis();
+        SmsAnalysis actual = new SmsAnalysis();
+        SmsAnalysis direct = new SmsAnalysis();
+        for (int i = 0; i < 20000; i++) {
+            byte[] bytes = new byte[random.nextInt(i % 10 == 0 ? 400 : 12)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = random.nextInt(4) == 0 ? (byte) random.nextInt() :
+                        interesting[random.nextInt(interesting.length)];
+            }
+
+            SmsUtils.analyze(new String(bytes, "UTF-8"), expected);
+            Utf8SmsAnalyzer.analyze(ByteBuffer.wrap(bytes), 0, bytes.length, actual);
+            ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length);
+            directBuffer.put(bytes).flip();
+            SmsUtils.analyze(directBuffer, direct);
+
+            String description = Arrays.toString(bytes);
+            assertTrue("Encoding of " + description, actual.getEncoding() == expected.getEncoding()
+                    && direct.getEncoding() == expected.getEncoding()
+                    && SmsUtils.getGsmEncoding(bytes, 0, bytes.length) == expected.getEncoding());
+            assertTrue("Length of " + description, actual.getLength() == expected.getLength()
+                    && direct.getLength() == expected.getLength());
+            assertTrue("Parts of " + description, actual.getNumberOfParts() == expected.getNumberOfParts()
+                    && direct.getNumberOfParts() == expected.getNumberOfParts());
+        }
+    }
+
+    @Test
+    public void partsAreTheBytesOfTheStringParts() throws Exception {
+        Random random = new Random(14);
+        SmsAnalysis analysis = new SmsAnalysis();
+
+        for (int i = 0; i < 3000; i++) {
+            String message = SmsUtilsTest.randomMessage(random, random.nextInt(500), i % 3 == 0);
+            if (i % 5 == 0) {
+                message = message.replace("Д", "😀");
+            }
+            int[] boundaries = SmsUtils.getPartBoundaries(message, new SmsAnalysis());
+
+            byte[] bytes = ("#" + message + "#").getBytes("UTF-8");
+            final List<Integer> byteBoundaries = new ArrayList<Integer>();
+            SmsUtils.splitSms(bytes, 1, bytes.length - 2, analysis, new SmsPartHandler() {
+                @Override
+                public void onPart(Encoding encoding, int partIndex, int numberOfParts, int start, int end) {
+                    if (partIndex == 0) {
+                        byteBoundaries.add(start);
+                    }
+                    byteBoundaries.add(end);
+                }
+            });
+
+            assertTrue("Same number of parts for: " + message, byteBoundaries.size() == boundaries.length);
+            for (int part = 0; part < boundaries.length; part++) {
+                int expected = 1 + message.substring(0, boundaries[part]).getBytes("UTF-8").length;
+                assertTrue("Boundary " + part + " for: " + message, byteBoundaries.get(part) == expected);
+            }
+        }
+    }
+}
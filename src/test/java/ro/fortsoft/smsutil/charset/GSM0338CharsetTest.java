@@ -0,0 +1,122 @@
+package ro.fortsoft.smsutil.charset;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+public class GSM0338CharsetTest {
+
+    /**
+     * The tables as they were written out before they were generated from the mapping files, base characters
+     * indexed by their code
+     */
+    private static final char[] BASE_CHARACTERS = {
+            '@', '£', '$', '¥', 'è', 'é', 'ù', 'ì', 'ò', 'ç', '\n', 'Ø', 'ø', '\r', 'Å', 'å',
+            'Δ', '_', 'Φ', 'Γ', 'Λ', 'Ω', 'Π', 'Ψ', 'Σ', 'Θ', 'Ξ', '\u001b', 'Æ', 'æ', 'ß', 'É',
+            ' ', '!', '"', '#', '¤', '%', '&', '\'', '(', ')', '*', '+', ',', '-', '.', '/',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':', ';', '<', '=', '>', '?',
+            '¡', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O',
+            'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'Ä', 'Ö', 'Ñ', 'Ü', '§',
+            '¿', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o',
+            'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', 'ä', 'ö', 'ñ', 'ü', 'à'
+    };
+
+    private static final char[] EXTENDED_CHARACTERS = {
+            '\f', '^', '{', '}', '\\', '[', '~', ']', '|', '€'
+    };
+
+    private static final int[] EXTENDED_CODES = {
+            0x0A, 0x14, 0x28, 0x29, 0x2F, 0x3C, 0x3D, 0x3E, 0x40, 0x65
+    };
+
+    @Test
+    public void tablesAreTheStandardOnes() {
+        for (int code = 0; code < 128; code++) {
+            assertTrue("Base character of " + code, GSM0338Charset.getBaseCharacter(code) == BASE_CHARACTERS[code]);
+
+            int expected = -1;
+            for (int i = 0; i < EXTENDED_CODES.length; i++) {
+                if (EXTENDED_CODES[i] == code) {
+                    expected = EXTENDED_CHARACTERS[i];
+                }
+            }
+            assertTrue("Extended character of " + code, GSM0338Charset.getExtendedCharacter(code) == expected);
+        }
+    }
+
+    @Test
+    public void characterTypeAndCodeAreTheStandardOnesForEveryChar() {
+        Map<Character, Integer> baseCodes = new HashMap<Character, Integer>();
+        for (int code = 0; code < BASE_CHARACTERS.length; code++) {
+            baseCodes.put(BASE_CHARACTERS[code], code);
+        }
+        Map<Character, Integer> extendedCodes = new HashMap<Character, Integer>();
+        for (int i = 0; i < EXTENDED_CHARACTERS.length; i++) {
+            extendedCodes.put(EXTENDED_CHARACTERS[i], EXTENDED_CODES[i]);
+        }
+
+        for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
+            char ch = (char) i;
+            String str = Character.toString(ch);
+
+            Integer code = baseCodes.get(ch);
+            int expectedType = GSM0338Charset.BASE_CHARACTER;
+            if (code == null) {
+                code = extendedCodes.get(ch);
+                expectedType = code == null ? GSM0338Charset.UNSUPPORTED_CHARACTER : GSM0338Charset.EXTENDED_CHARACTER;
+            }
+
+            assertTrue("Type of char " + i, GSM0338Charset.getCharacterType(ch) == expectedType);
+            assertTrue("Code of char " + i, GSM0338Charset.getCode(ch) == (code == null ? -1 : code));
+            assertTrue("Base charset contains char " + i, GSM0338Charset.BASE_CHARSET.contains(str)
+                    == (expectedType == GSM0338Charset.BASE_CHARACTER));
+            assertTrue("Extended charset contains char " + i, GSM0338Charset.EXTENDED_CHARSET.contains(str)
+                    == (expectedType == GSM0338Charset.EXTENDED_CHARACTER));
+        }
+    }
+
+    @Test
+    public void charsetSizesMatchTheStandard() {
+        assertTrue("128 base characters", GSM0338Charset.BASE_CHARSET.size() == 128);
+        assertTrue("10 extended characters", GSM0338Charset.EXTENDED_CHARSET.size() == 10);
+    }
+
+    @Test
+    public void charsetSetsIterateOverTheTables() {
+        int count = 0;
+        for (String str : GSM0338Charset.BASE_CHARSET) {
+            assertTrue("Base " + str, GSM0338Charset.getBaseCharacter(GSM0338Charset.getCode(str.charAt(0)))
+                    == str.charAt(0));
+            count++;
+        }
+        assertTrue("Base count", count == 128);
+
+        for (String str : GSM0338Charset.EXTENDED_CHARSET) {
+            assertTrue("Extended " + str, GSM0338Charset.getExtendedCharacter(GSM0338Charset.getCode(str.charAt(0)))
+                    == str.charAt(0));
+        }
+    }
+
+    @Test
+    public void nationalLanguageOrdinalIsItsIdentifier() {
+        for (NationalLanguage language : NationalLanguage.values()) {
+            assertTrue(language.name(), language.ordinal() == language.getIdentifier());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void charsetSetsAreReadOnly() {
+        GSM0338Charset.BASE_CHARSET.add("Д");
+    }
+
+    @Test
+    public void extendedCharactersAreOnlyAllowedWhenRequested() {
+        assertTrue("Base only", GSM0338Charset.containsOnlyCharsetCharacters("Hello ΔΦ", false));
+        assertTrue("Extended not allowed", ! GSM0338Charset.containsOnlyBaseCharsetCharacters("Price 5€"));
+        assertTrue("Extended allowed", GSM0338Charset.containsOnlyCharsetCharacters("Price 5€ {ok}", true));
+        assertTrue("Unsupported", ! GSM0338Charset.containsOnlyCharsetCharacters("Hello țar", true));
+    }
+}
@@ -0,0 +1,115 @@
+package ro.fortsoft.smsutil.charset;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+public class GSM7BitCodecTest {
+
+    @Test
+    public void packsEightSeptetsIntoSevenBytes() {
+        ByteBuffer out = ByteBuffer.allocate(16);
+        int septets = GSM7BitCodec.encode("hellohello", 0, 10, 0, out);
+
+        byte[] expected = {(byte) 0xE8, 0x32, (byte) 0x9B, (byte) 0xFD, 0x46, (byte) 0x97, (byte) 0xD9,
+                (byte) 0xEC, 0x37};
+        assertTrue("10 septets", septets == 10);
+        assertTrue("Packed as in the GSM 03.38 examples",
+                Arrays.equals(Arrays.copyOf(out.array(), out.position()), expected));
+    }
+
+    @Test
+    public void extendedCharactersArePrecededByTheEscapeSeptet() {
+        ByteBuffer out = ByteBuffer.allocateDirect(16);
+        int septets = GSM7BitCodec.encode("5€", 0, 2, 0, out);
+        assertTrue("Euro takes 2 septets", septets == 3);
+
+        out.flip();
+        CharBuffer decoded = CharBuffer.allocate(16);
+        GSM7BitCodec.decode(out, septets, 0, decoded);
+        decoded.flip();
+        assertTrue("Decoded back", decoded.toString().equals("5€"));
+    }
+
+    @Test
+    public void multipartSeptetsAlignAfterTheConcatenationHeader() {
+        int fillBits = GSM7BitCodec.getFillBits(6);
+        assertTrue("1 fill bit after the 6 bytes header", fillBits == 1);
+        assertTrue("153 septets fill the rest of the 140 bytes",
+                6 + GSM7BitCodec.getPackedLength(153, fillBits) == 140);
+
+        StringBuilder message = new StringBuilder();
+        while (message.length() < 153) {
+            message.append("The quick brown fox [jumps] over the lazy dog @ 5€ ");
+        }
+        String part = message.substring(0, 140);
+        int septetLength = GSM7BitCodec.getSeptetLength(part, 0, part.length());
+
+        ByteBuffer out = ByteBuffer.allocate(140);
+        out.put(new byte[] {0x05, 0x00, 0x03, 0x2A, 0x02, 0x01});
+        int septets = GSM7BitCodec.encode(part, 0, part.length(), fillBits, out);
+        assertTrue("Septets as counted", septets == septetLength);
+        assertTrue("Packed length as computed", out.position() == 6 + GSM7BitCodec.getPackedLength(septets, fillBits));
+
+        out.flip();
+        out.position(6);
+        CharBuffer decoded = CharBuffer.allocate(160);
+        GSM7BitCodec.decode(out, septets, fillBits, decoded);
+        decoded.flip();
+        assertTrue("Decoded back", decoded.toString().equals(part));
+    }
+
+    @Test
+    public void everyCharacterOfTheCharsetSurvivesTheRoundTrip() {
+        StringBuilder message = new StringBuilder();
+        for (String ch : GSM0338Charset.BASE_CHARSET) {
+            if (ch.charAt(0) != GSM0338Charset.ESCAPE_CHAR) {
+                message.append(ch);
+            }
+        }
+        for (String ch : GSM0338Charset.EXTENDED_CHARSET) {
+            message.append(ch);
+        }
+
+        for (int fillBits = 0; fillBits < 7; fillBits++) {
+            ByteBuffer out = ByteBuffer.allocate(512);
+            int septets = GSM7BitCodec.encode(message, 0, message.length(), fillBits, out);
+            out.flip();
+
+            CharBuffer decoded = CharBuffer.allocate(512);
+            int chars = GSM7BitCodec.decode(out, septets, fillBits, decoded);
+            decoded.flip();
+            assertTrue("Chars written", chars == message.length());
+            assertTrue("Decoded back with " + fillBits + " fill bits", decoded.toString().equals(message.toString()));
+            assertTrue("All bytes consumed", ! out.hasRemaining());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void charactersOutsideTheCharsetAreRejected() {
+        GSM7BitCodec.encode("Hello țar", 0, 9, 0, ByteBuffer.allocate(16));
+    }
+
+    @Test
+    public void escapeCharacterIsRejected() {
+        // packed alone the escape would be read back with the next character as "A{"
+        String message = "A\u001b(";
+        try {
+            GSM7BitCodec.encode(message, 0, message.length(), 0, ByteBuffer.allocate(16));
+            assertTrue("Escape character encoded", false);
+        } catch (IllegalArgumentException e) {
+            assertTrue("Escape character reported", e.getMessage().contains("\u001b"));
+        }
+
+        try {
+            GSM7BitCodec.getSeptetLength(message, 0, message.length());
+            assertTrue("Escape character counted", false);
+        } catch (IllegalArgumentException e) {
+            assertTrue("Escape character reported", e.getMessage().contains("\u001b"));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ro.fortsoft.smsutil.charset;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+public class UCS2CodecTest {
+
+    @Test
+    public void charactersAreWrittenBigEndianWhateverTheBufferOrder() throws Exception {
+        String message = "Hi Д 😀!";
+        byte[] expected = message.getBytes("UTF-16BE");
+
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer out = ByteBuffer.allocate(64).order(order);
+            int written = UCS2Codec.encode(message, 0, message.length(), out);
+
+            assertTrue("Bytes written", written == expected.length);
+            assertTrue("UTF-16BE bytes with " + order,
+                    Arrays.equals(Arrays.copyOf(out.array(), out.position()), expected));
+
+            out.flip();
+            CharBuffer decoded = CharBuffer.allocate(64);
+            UCS2Codec.decode(out, message.length(), decoded);
+            decoded.flip();
+            assertTrue("Decoded back with " + order, decoded.toString().equals(message));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ro.fortsoft.smsutil.charset;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.UnmappableCharacterException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+public class UnpackedGSM0338CharsetTest {
+
+    private static final String ALL_CHARACTERS = allCharacters();
+
+    @Test
+    public void charsetIsFoundByName() {
+        assertTrue("Found by name", Charset.forName("X-GSM0338-UNPACKED") == UnpackedGSM0338Charset.INSTANCE);
+        assertTrue("Found by alias", Charset.forName("gsm0338") == UnpackedGSM0338Charset.INSTANCE);
+    }
+
+    @Test
+    public void extendedCharactersAreEscaped() throws Exception {
+        byte[] bytes = "a€{".getBytes(UnpackedGSM0338Charset.NAME);
+        assertTrue("Escape before the extended codes",
+                Arrays.equals(bytes, new byte[] {0x61, 0x1B, 0x65, 0x1B, 0x28}));
+        assertTrue("Decoded back", new String(bytes, UnpackedGSM0338Charset.NAME).equals("a€{"));
+    }
+
+    @Test
+    public void allCharactersGoBothWays() throws Exception {
+        ByteBuffer heapBytes = UnpackedGSM0338Charset.INSTANCE.newEncoder().encode(CharBuffer.wrap(ALL_CHARACTERS));
+        assertTrue("Decoded from heap buffer", UnpackedGSM0338Charset.INSTANCE.newDecoder().decode(heapBytes)
+                .toString().equals(ALL_CHARACTERS));
+
+        heapBytes.rewind();
+        ByteBuffer directBytes = ByteBuffer.allocateDirect(heapBytes.remaining());
+        directBytes.put(heapBytes).flip();
+        CharBuffer chars = ByteBuffer.allocateDirect(ALL_CHARACTERS.length() * 2).asCharBuffer();
+        CoderResult result = UnpackedGSM0338Charset.INSTANCE.newDecoder().decode(directBytes, chars, true);
+        chars.flip();
+        assertTrue("Decoded from direct buffer", result.isUnderflow() && chars.toString().equals(ALL_CHARACTERS));
+    }
+
+    @Test
+    public void streamingThroughSmallBuffersGivesTheSameBytes() throws Exception {
+        byte[] expected = ALL_CHARACTERS.getBytes(UnpackedGSM0338Charset.NAME);
+
+        CharsetEncoder encoder = UnpackedGSM0338Charset.INSTANCE.newEncoder();
+        CharBuffer in = CharBuffer.wrap(ALL_CHARACTERS);
+        ByteBuffer out = ByteBuffer.allocate(2);
+        ByteBuffer all = ByteBuffer.allocate(expected.length);
+        while (true) {
+            CoderResult result = encoder.encode(in, out, true);
+            out.flip();
+            all.put(out);
+            out.clear();
+            if (result.isUnderflow()) {
+                break;
+            }
+            assertTrue("Only overflows", result.isOverflow());
+        }
+        assertTrue("Same bytes", Arrays.equals(all.array(), expected));
+
+        CharsetDecoder decoder = UnpackedGSM0338Charset.INSTANCE.newDecoder();
+        CharBuffer decoded = CharBuffer.allocate(ALL_CHARACTERS.length());
+        ByteBuffer chunk = ByteBuffer.allocate(expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            chunk.put(expected[i]).flip();
+            assertTrue("Underflow on each byte", decoder.decode(chunk, decoded, i == expected.length - 1).isUnderflow());
+            chunk.compact();
+        }
+        assertTrue("Same characters", decoded.flip().toString().equals(ALL_CHARACTERS));
+    }
+
+    @Test
+    public void unsupportedCharactersAreReported() throws Exception {
+        CharsetEncoder encoder = UnpackedGSM0338Charset.INSTANCE.newEncoder();
+        assertTrue("Unmappable", encoder.encode(CharBuffer.wrap("aț"), ByteBuffer.allocate(4), true)
+                .isUnmappable());
+        assertTrue("Surrogate pair is one unmappable character", encoder.reset()
+                .encode(CharBuffer.wrap("😀"), ByteBuffer.allocate(4), true).length() == 2);
+        assertTrue("Lone surrogate is malformed", encoder.reset()
+                .encode(CharBuffer.wrap("\uDE00"), ByteBuffer.allocate(4), true).isMalformed());
+        assertTrue("Replaced by ?", new String("aț".getBytes(UnpackedGSM0338Charset.NAME), "US-ASCII").equals("a?"));
+
+        try {
+            encoder.reset().encode(CharBuffer.wrap("ț"));
+            assertTrue("Unmappable exception expected", false);
+        } catch (UnmappableCharacterException e) {
+            assertTrue("Length of the character", e.getInputLength() == 1);
+        }
+    }
+
+    @Test
+    public void escapeCharacterIsUnmappable() throws Exception {
+        CharsetEncoder encoder = UnpackedGSM0338Charset.INSTANCE.newEncoder();
+        assertTrue("Cannot encode", ! encoder.canEncode('\u001B') && ! encoder.canEncode("A\u001B("));
+        assertTrue("Unmappable", encoder.encode(CharBuffer.wrap("A\u001B("), ByteBuffer.allocate(4), true)
+                .isUnmappable());
+        CharBuffer direct = ByteBuffer.allocateDirect(2).asCharBuffer();
+        direct.put('\u001B').flip();
+        assertTrue("Unmappable from a direct buffer", encoder.reset().encode(direct, ByteBuffer.allocate(4), true)
+                .isUnmappable());
+
+        byte[] bytes = "A\u001B({\u001B".getBytes(UnpackedGSM0338Charset.NAME);
+        assertTrue("Replaced", Arrays.equals(bytes, new byte[] {0x41, 0x3F, 0x28, 0x1B, 0x28, 0x3F}));
+        assertTrue("Decoded back", UnpackedGSM0338Charset.INSTANCE.newDecoder().decode(ByteBuffer.wrap(bytes))
+                .toString().equals("A?({?"));
+    }
+
+    @Test
+    public void malformedBytesAreReported() throws CharacterCodingException {
+        CharsetDecoder decoder = UnpackedGSM0338Charset.INSTANCE.newDecoder();
+        try {
+            decoder.decode(ByteBuffer.wrap(new byte[] {0x61, (byte) 0x80}));
+            assertTrue("Malformed exception expected", false);
+        } catch (MalformedInputException e) {
+            assertTrue("Length of the byte", e.getInputLength() == 1);
+        }
+
+        try {
+            decoder.reset().decode(ByteBuffer.wrap(new byte[] {0x61, 0x1B}));
+            assertTrue("Escape ending the input is malformed", false);
+        } catch (MalformedInputException e) {
+            assertTrue("Length of the escape", e.getInputLength() == 1);
+        }
+
+        assertTrue("Unknown extended code gives the base character", decoder.reset()
+                .decode(ByteBuffer.wrap(new byte[] {0x1B, 0x41})).toString().equals("A"));
+    }
+
+    private static String allCharacters() {
+        StringBuilder characters = new StringBuilder();
+        for (int code = 0; code < 128; code++) {
+            if (code != GSM0338Charset.ESCAPE_CHAR) {
+                characters.append(GSM0338Charset.getBaseCharacter(code));
+            }
+            int extended = GSM0338Charset.getExtendedCharacter(code);
+            if (extended >= 0) {
+                characters.append((char) extended);
+            }
+        }
+        return characters.toString();
+    }
+}
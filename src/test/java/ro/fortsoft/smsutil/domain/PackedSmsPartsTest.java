@@ -0,0 +1,76 @@
+package ro.fortsoft.smsutil.domain;
+
+import org.junit.Test;
+import ro.fortsoft.smsutil.Encoding;
+import ro.fortsoft.smsutil.SmsUtils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class PackedSmsPartsTest {
+
+    @Test
+    public void gsm7BitPartsArePackedAsSeptets() {
+        char[] chars = new char[459];
+        Arrays.fill(chars, 'a');
+        chars[152] = '€';
+        String message = new String(chars);
+
+        PackedSmsParts packed = PackedSmsParts.pack(message);
+        SmsParts expected = SmsUtils.splitSms(message);
+        assertTrue("Encoding", packed.getEncoding() == Encoding.GSM_7BIT);
+        assertTrue("Parts", packed.getNumberOfParts() == expected.getParts().length);
+        assertTrue("7 bits per septet", packed.getPackedLength() == (460 * 7 + 7) / 8);
+
+        CharSequence second = packed.getPart(1);
+        assertTrue("Escape kept", second.length() == expected.getParts()[1].length()
+                && second.charAt(0) == '\u001b' && second.charAt(1) == '€');
+        assertTrue("Same parts", Arrays.equals(packed.toSmsParts().getParts(), expected.getParts()));
+    }
+
+    @Test
+    public void unicodePartsAreViews() {
+        PackedSmsParts packed = PackedSmsParts.pack("Привет 😀 мир");
+        assertTrue("Encoding", packed.getEncoding() == Encoding.GSM_UNICODE);
+        assertTrue("2 bytes per char", packed.getPackedLength() == 26);
+
+        CharSequence part = packed.getPart(0);
+        assertTrue("Char", part.charAt(7) == '\uD83D');
+        assertTrue("Sub sequence", part.subSequence(10, 13).toString().equals("мир"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void partOutOfRange() {
+        PackedSmsParts.pack("Hello").getPart(1);
+    }
+
+    @Test
+    public void packedPartsAreTheSameAsSmsParts() {
+        Random random = new Random(19);
+        String pool = "abc @€{}^ΔЖ😀";
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder message = new StringBuilder();
+            boolean unicode = random.nextBoolean();
+            for (int j = random.nextInt(800); j > 0; j--) {
+                message.append(pool.charAt(random.nextInt(unicode ? pool.length() : pool.length() - 3)));
+            }
+
+            SmsParts expected = SmsUtils.splitSms(message.toString());
+            PackedSmsParts fromMessage = PackedSmsParts.pack(message);
+            PackedSmsParts fromParts = PackedSmsParts.pack(expected);
+            assertTrue("From message " + message,
+                    Arrays.equals(fromMessage.toSmsParts().getParts(), expected.getParts()));
+            assertTrue("From parts " + message, Arrays.equals(fromParts.toSmsParts().getParts(), expected.getParts()));
+            for (int j = 0; j < expected.getParts().length; j++) {
+                CharSequence part = fromMessage.getPart(j);
+                String expectedPart = expected.getParts()[j];
+                assertTrue("Length", part.length() == expectedPart.length());
+                for (int k = 0; k < part.length(); k += 7) {
+                    assertTrue("Char", part.charAt(k) == expectedPart.charAt(k));
+                }
+            }
+        }
+    }
+}
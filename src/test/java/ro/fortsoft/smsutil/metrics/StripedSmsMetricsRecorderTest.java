@@ -0,0 +1,117 @@
+package ro.fortsoft.smsutil.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+import ro.fortsoft.smsutil.Encoding;
+import ro.fortsoft.smsutil.SmsPartHandler;
+import ro.fortsoft.smsutil.SmsUtils;
+import ro.fortsoft.smsutil.domain.SmsAnalysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+public class StripedSmsMetricsRecorderTest {
+
+    @After
+    public void disableMetrics() {
+        SmsMetrics.setRecorder(null);
+    }
+
+    @Test
+    public void analysisAndSplitAreRecorded() {
+        StripedSmsMetricsRecorder recorder = new StripedSmsMetricsRecorder(4);
+        SmsMetrics.setRecorder(recorder);
+
+        SmsUtils.analyze("Hello", new SmsAnalysis());
+        SmsUtils.analyze(ByteBuffer.wrap("Привет".getBytes(Charset.forName("UTF-8"))), new SmsAnalysis());
+        SmsUtils.splitSms(repeat('a', 400));
+
+        assertTrue("Analyzed GSM", recorder.getAnalyzedMessages(Encoding.GSM_7BIT) == 1);
+        assertTrue("Analyzed Unicode", recorder.getAnalyzedMessages(Encoding.GSM_UNICODE) == 1);
+        assertTrue("Split GSM", recorder.getSplitMessages(Encoding.GSM_7BIT) == 1);
+        assertTrue("Split Unicode", recorder.getSplitMessages(Encoding.GSM_UNICODE) == 0);
+
+        long[] histogram = recorder.getPartsHistogram();
+        assertTrue("1 part", histogram[1] == 2);
+        assertTrue("3 parts", histogram[3] == 1);
+        assertTrue("Analysis durations", sum(recorder.getAnalysisDurations()) == 2);
+        assertTrue("Split durations", sum(recorder.getSplitDurations()) == 1);
+        assertTrue("No escape adjustments", recorder.getEscapeAdjustments() == 0);
+    }
+
+    @Test
+    public void escapeAdjustmentsAreRecorded() {
+        StripedSmsMetricsRecorder recorder = new StripedSmsMetricsRecorder(1);
+        SmsMetrics.setRecorder(recorder);
+
+        String message = repeat('a', 152) + "€" + repeat('a', 150) + "{" + repeat('a', 10);
+        SmsUtils.splitSms(message);
+        assertTrue("String split", recorder.getEscapeAdjustments() == 2);
+
+        SmsUtils.splitSms(ByteBuffer.wrap(message.getBytes(Charset.forName("UTF-8"))), new SmsAnalysis(), new SmsPartHandler() {
+            @Override
+            public void onPart(Encoding encoding, int partIndex, int numberOfParts, int start, int end) {
+            }
+        });
+        assertTrue("UTF-8 split", recorder.getEscapeAdjustments() == 4);
+    }
+
+    @Test
+    public void nothingIsRecordedWithoutRecorder() {
+        StripedSmsMetricsRecorder recorder = new StripedSmsMetricsRecorder();
+        SmsUtils.splitSms("Hello");
+        assertTrue("Disabled", recorder.getSplitMessages(Encoding.GSM_7BIT) == 0);
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        final StripedSmsMetricsRecorder recorder = new StripedSmsMetricsRecorder(4);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        recorder.recordAnalysis(Encoding.GSM_7BIT, j % 20, j);
+                        recorder.recordEscapeAdjustments(1);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("Messages", recorder.getAnalyzedMessages(Encoding.GSM_7BIT) == 80000);
+        assertTrue("Parts", sum(recorder.getPartsHistogram()) == 80000);
+        assertTrue("Overflow bucket", recorder.getPartsHistogram()[StripedSmsMetricsRecorder.MAX_PARTS_BUCKET] == 8 * 2000);
+        assertTrue("Durations", sum(recorder.getAnalysisDurations()) == 80000);
+        assertTrue("Escape adjustments", recorder.getEscapeAdjustments() == 80000);
+    }
+
+    @Test
+    public void durationBuckets() {
+        assertTrue("Zero", StripedSmsMetricsRecorder.getDurationBucket(0) == 0);
+        assertTrue("One", StripedSmsMetricsRecorder.getDurationBucket(1) == 1);
+        assertTrue("Power of 2", StripedSmsMetricsRecorder.getDurationBucket(1024) == 11);
+        assertTrue("Max", StripedSmsMetricsRecorder.getDurationBucket(Long.MAX_VALUE) == 63);
+    }
+
+    private static String repeat(char ch, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, ch);
+        return new String(chars);
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}